@@ -1,8 +1,24 @@
 package com.wisea.cloud.common.datacheck;
 
+import java.util.concurrent.Executor;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import com.wisea.cloud.common.datacheck.util.ConverterUtil;
+import com.wisea.cloud.common.datacheck.util.DataCheckUtil;
+import com.wisea.cloud.common.datacheck.util.EmptyChecker;
+import com.wisea.cloud.common.datacheck.util.ExpressionCache;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+import com.wisea.cloud.common.datacheck.util.ParallelCheck;
+import com.wisea.cloud.common.datacheck.util.PatternCache;
+import com.wisea.cloud.common.datacheck.util.ResultCache;
+
 /**
  * DataCheck自动配置
  * 
@@ -12,6 +28,31 @@ import org.springframework.context.annotation.Configuration;
  */
 @Configuration
 @ComponentScan
+@EnableConfigurationProperties(DataCheckProperties.class)
 public class DataCheckAutoConfiguration {
+    @Autowired
+    private DataCheckProperties properties;
+    @Autowired
+    private BeanFactory beanFactory;
 
+    /**
+     * 将配置设置到DataCheckUtil
+     */
+    @PostConstruct
+    public void init() {
+        DataCheckUtil.setEngineMode(properties.getEngine());
+        DataCheckUtil.setMaxDepth(properties.getMaxDepth());
+        DataCheckUtil.setMaxNodes(properties.getMaxNodes());
+        EmptyChecker.setLegacy(properties.isLegacyEmptyCheck());
+        PatternCache.setMaximumSize(properties.getRegexCacheSize());
+        ExpressionCache.setMaximumSize(properties.getSpelCacheSize());
+        ExpressionCache.setCompilerMode(properties.getSpelCompilerMode());
+        MessageTemplate.setBundleBaseName(properties.getMessageBundle());
+        ResultCache.setMaximumSize(properties.getResultCacheSize());
+        ParallelCheck.setThreshold(properties.getParallelThreshold());
+        ParallelCheck.setMaxParallelism(properties.getParallelMaxParallelism());
+        if (ConverterUtil.isNotEmpty(properties.getParallelExecutor())) {
+            ParallelCheck.setExecutor(beanFactory.getBean(properties.getParallelExecutor(), Executor.class));
+        }
+    }
 }
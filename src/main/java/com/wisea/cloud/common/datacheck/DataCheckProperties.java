@@ -0,0 +1,141 @@
+package com.wisea.cloud.common.datacheck;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import com.wisea.cloud.common.datacheck.plan.CheckEngineMode;
+import com.wisea.cloud.common.datacheck.util.ExpressionCache;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+import com.wisea.cloud.common.datacheck.util.ParallelCheck;
+import com.wisea.cloud.common.datacheck.util.PatternCache;
+import com.wisea.cloud.common.datacheck.util.ResultCache;
+
+/**
+ * DataCheck配置
+ * <p/>
+ * 例:<br/>
+ * datacheck.engine=generated
+ */
+@ConfigurationProperties(prefix = "datacheck")
+public class DataCheckProperties {
+    /** 校验引擎模式 reflect:反射方式(默认),generated:运行时生成校验器 */
+    private CheckEngineMode engine = CheckEngineMode.REFLECT;
+    /** 正则缓存容量 */
+    private int regexCacheSize = PatternCache.DEFAULT_MAXIMUM_SIZE;
+    /** 逻辑表达式缓存容量 */
+    private int spelCacheSize = ExpressionCache.DEFAULT_MAXIMUM_SIZE;
+    /** 逻辑表达式编译模式 off:不编译(默认),immediate:立即编译,mixed:多次执行后编译 */
+    private SpelCompilerMode spelCompilerMode = SpelCompilerMode.OFF;
+    /** 多语言消息的资源文件 */
+    private String messageBundle = MessageTemplate.DEFAULT_BUNDLE;
+    /** List和Map并行校验的元素数量阈值 0:不并行(默认) */
+    private int parallelThreshold = ParallelCheck.DEFAULT_THRESHOLD;
+    /** 并行校验的最大并行度 0:CPU核数(默认) */
+    private int parallelMaxParallelism;
+    /** 并行校验使用的线程池(Executor)的bean名称 为空时使用专用的ForkJoinPool */
+    private String parallelExecutor;
+    /** 级联校验的最大嵌套深度 0:不限制(默认) */
+    private int maxDepth;
+    /** 一次校验最多校验的对象数量 0:不限制(默认) */
+    private int maxNodes;
+    /** 校验结果缓存容量 0:不开启(默认) */
+    private int resultCacheSize = ResultCache.DEFAULT_MAXIMUM_SIZE;
+    /** 空值判断的兼容模式 true:与ConverterUtil.isEmpty一致,按toString判断实体 false:按类型判断(默认) */
+    private boolean legacyEmptyCheck;
+
+    public CheckEngineMode getEngine() {
+        return engine;
+    }
+
+    public void setEngine(CheckEngineMode engine) {
+        this.engine = engine;
+    }
+
+    public int getRegexCacheSize() {
+        return regexCacheSize;
+    }
+
+    public void setRegexCacheSize(int regexCacheSize) {
+        this.regexCacheSize = regexCacheSize;
+    }
+
+    public int getSpelCacheSize() {
+        return spelCacheSize;
+    }
+
+    public void setSpelCacheSize(int spelCacheSize) {
+        this.spelCacheSize = spelCacheSize;
+    }
+
+    public SpelCompilerMode getSpelCompilerMode() {
+        return spelCompilerMode;
+    }
+
+    public void setSpelCompilerMode(SpelCompilerMode spelCompilerMode) {
+        this.spelCompilerMode = spelCompilerMode;
+    }
+
+    public String getMessageBundle() {
+        return messageBundle;
+    }
+
+    public void setMessageBundle(String messageBundle) {
+        this.messageBundle = messageBundle;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getParallelMaxParallelism() {
+        return parallelMaxParallelism;
+    }
+
+    public void setParallelMaxParallelism(int parallelMaxParallelism) {
+        this.parallelMaxParallelism = parallelMaxParallelism;
+    }
+
+    public String getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    public void setParallelExecutor(String parallelExecutor) {
+        this.parallelExecutor = parallelExecutor;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public int getResultCacheSize() {
+        return resultCacheSize;
+    }
+
+    public void setResultCacheSize(int resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    public boolean isLegacyEmptyCheck() {
+        return legacyEmptyCheck;
+    }
+
+    public void setLegacyEmptyCheck(boolean legacyEmptyCheck) {
+        this.legacyEmptyCheck = legacyEmptyCheck;
+    }
+}
@@ -12,6 +12,7 @@ import java.lang.annotation.Target;
  * 例:<br/>
  * '@Check(test="required")<br/>
  * '@Check(test="minLength", length = 10)<br/>
+ * '@Check(test="maxLength", byteLength = 30, charset = "GBK")<br/>
  * '@Check(test="liveable", liveable={"0","1"})<br/>
  * '@Check(test="regex", regex="[pdf|png|jpg|jpeg|bmp|gif]$")<br/>
  * '@Check(test={"required","regex"}, regex="[pdf|png|jpg|jpeg|bmp|gif]$")<br/>
@@ -46,6 +47,15 @@ public @interface Check {
     /** 中英文长度限制(test同时包含minLength和maxLength生效) */
     public int[] mixLengthRange() default {};
 
+    /** 字节长度限制 按charset编码后的字节数(test包含minLength或maxLength生效) */
+    public int byteLength() default -1;
+
+    /** 字节长度限制(test同时包含minLength和maxLength生效) */
+    public int[] byteLengthRange() default {};
+
+    /** 计算字节长度的字符集 UTF-8、GBK等 */
+    public String charset() default "UTF-8";
+
     /** 数据有效性(test包含liveable生效) */
     public String[] liveable() default "";
 
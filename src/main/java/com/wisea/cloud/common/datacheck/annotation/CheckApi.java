@@ -23,4 +23,7 @@ import org.springframework.stereotype.Component;
 public @interface CheckApi {
     /** 名称:默认和方法名一致 */
     public String name() default "";
+
+    /** 是否是确定性函数:结果只与参数有关(不访问数据库、当前时间等)，只调用确定性函数的类才会使用校验结果缓存 */
+    public boolean deterministic() default false;
 }
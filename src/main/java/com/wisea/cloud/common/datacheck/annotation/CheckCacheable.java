@@ -0,0 +1,21 @@
+package com.wisea.cloud.common.datacheck.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 校验结果可以缓存
+ * <p/>
+ * 开启校验结果缓存(datacheck.result-cache-size)后，声明了该注解的类按校验属性的值缓存checkResultMsg的结果，<br/>
+ * 内容相同的对象(例如重试的请求)不再重复校验。级联的对象和List中的元素也必须声明该注解，<br/>
+ * 逻辑校验调用了非确定性的@CheckApi函数或引用了parent的类不缓存。
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CheckCacheable {
+
+}
@@ -0,0 +1,228 @@
+package com.wisea.cloud.common.datacheck.entity;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.util.DataCheckUtil;
+
+/**
+ * 批量校验的结果
+ * <p/>
+ * 保存校验不通过的行和每个属性每种规则不通过的行数，校验信息在取得时才重新校验该行并生成，<br/>
+ * 只需要知道哪些行不通过时(例如去重、统计)不会生成任何消息。
+ */
+public class BatchCheckResult {
+    /** 嵌套校验(List属性的元素和级联对象)不通过时使用的规则编码 */
+    public static final int NESTED = 0;
+
+    /** 规则编码对应的下标数量 NESTED和CheckRule中的7种规则 */
+    private static final int RULE_SLOTS = 8;
+
+    /** 被校验的行 */
+    private final Object[] rows;
+
+    /** 校验属性名 */
+    private final String[] fieldNames;
+
+    /** 校验不通过的行 */
+    private final BitSet failingRows;
+
+    /** 每个属性每种规则不通过的行 */
+    private final BitSet[][] ruleRows;
+
+    private BatchCheckResult(Builder builder) {
+        this.rows = builder.rows;
+        this.fieldNames = builder.fieldNames;
+        this.failingRows = builder.failingRows;
+        this.ruleRows = builder.ruleRows;
+    }
+
+    /**
+     * 创建记录校验结果的构建器 由DataCheckUtil.checkBatch使用
+     *
+     * @param rows
+     *            被校验的行
+     * @param fieldNames
+     *            校验属性名
+     * @return
+     */
+    public static Builder builder(Object[] rows, String[] fieldNames) {
+        return new Builder(rows, fieldNames);
+    }
+
+    private static int slotOf(int rule) {
+        return NESTED == rule ? 0 : Integer.numberOfTrailingZeros(rule) + 1;
+    }
+
+    /**
+     * 取得校验不通过的行
+     *
+     * @return 副本
+     */
+    public BitSet getFailingRows() {
+        return (BitSet) failingRows.clone();
+    }
+
+    /**
+     * 该行是否校验不通过
+     *
+     * @param row
+     *            行号
+     * @return
+     */
+    public boolean isFailing(int row) {
+        return failingRows.get(row);
+    }
+
+    /**
+     * 全部行是否都校验通过
+     *
+     * @return
+     */
+    public boolean isValid() {
+        return failingRows.isEmpty();
+    }
+
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    /**
+     * 校验不通过的行数
+     *
+     * @return
+     */
+    public int getFailingCount() {
+        return failingRows.cardinality();
+    }
+
+    /**
+     * 某个属性某种规则不通过的行数
+     *
+     * @param fieldName
+     *            属性名
+     * @param rule
+     *            规则编码 CheckRule.REQUIRED等，嵌套校验为NESTED
+     * @return
+     */
+    public int getFailureCount(String fieldName, int rule) {
+        int slot = slotOf(rule);
+        int count = 0;
+        for (int f = 0; f < fieldNames.length; f++) {
+            if (fieldNames[f].equals(fieldName) && null != ruleRows[f][slot]) {
+                count += ruleRows[f][slot].cardinality();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 全部属性中某种规则不通过的次数(按属性和行计数)
+     *
+     * @param rule
+     *            规则编码 CheckRule.REQUIRED等，嵌套校验为NESTED
+     * @return
+     */
+    public int getFailureCount(int rule) {
+        int slot = slotOf(rule);
+        int count = 0;
+        for (int f = 0; f < fieldNames.length; f++) {
+            if (null != ruleRows[f][slot]) {
+                count += ruleRows[f][slot].cardinality();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取得某一行的校验信息 路径以行号开头，例如[3].name
+     *
+     * @param row
+     *            行号
+     * @return 校验通过时为空
+     */
+    public List<CheckViolation> getViolations(int row) {
+        if (!failingRows.get(row)) {
+            return Lists.newArrayList();
+        }
+        return DataCheckUtil.checkViolationsAt(PathNode.element(null, null, row), rows[row]);
+    }
+
+    /**
+     * 取得全部不通过的行的校验信息 按行号顺序
+     *
+     * @return
+     */
+    public List<CheckViolation> getViolations() {
+        List<CheckViolation> violations = Lists.newArrayList();
+        for (int row = failingRows.nextSetBit(0); row >= 0; row = failingRows.nextSetBit(row + 1)) {
+            violations.addAll(getViolations(row));
+        }
+        return violations;
+    }
+
+    /**
+     * 校验结果的构建器
+     * <p/>
+     * 校验过程中记录不通过的行，build之后不能再记录，交给调用方的结果不可修改。
+     */
+    public static final class Builder {
+        private final Object[] rows;
+
+        private final String[] fieldNames;
+
+        private final BitSet failingRows;
+
+        private final BitSet[][] ruleRows;
+
+        /** 是否已经构建 */
+        private boolean built;
+
+        private Builder(Object[] rows, String[] fieldNames) {
+            this.rows = rows;
+            this.fieldNames = fieldNames;
+            this.failingRows = new BitSet(rows.length);
+            this.ruleRows = new BitSet[fieldNames.length][RULE_SLOTS];
+        }
+
+        /**
+         * 记录不通过的行
+         *
+         * @param row
+         *            行号
+         * @param field
+         *            属性下标
+         * @param rule
+         *            规则编码 嵌套校验为NESTED
+         * @throws IllegalStateException
+         *             已经构建之后
+         */
+        public void fail(int row, int field, int rule) {
+            if (built) {
+                throw new IllegalStateException("BatchCheckResult is already built");
+            }
+            failingRows.set(row);
+            int slot = slotOf(rule);
+            BitSet bits = ruleRows[field][slot];
+            if (null == bits) {
+                bits = new BitSet(rows.length);
+                ruleRows[field][slot] = bits;
+            }
+            bits.set(row);
+        }
+
+        /**
+         * 构建校验结果 只能调用一次
+         *
+         * @return
+         */
+        public BatchCheckResult build() {
+            if (built) {
+                throw new IllegalStateException("BatchCheckResult is already built");
+            }
+            built = true;
+            return new BatchCheckResult(this);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.wisea.cloud.common.datacheck.entity;
+
+import java.util.Locale;
+
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+
+/**
+ * 校验不通过的信息
+ * <p/>
+ * 保存路径节点、规则编码、被拒绝的值以及消息模板和参数，<br/>
+ * 调用getMessage或getPath时才生成字符串，嵌套校验时不再逐层拼接前缀。
+ */
+public class CheckViolation {
+    /** 所在对象的路径 最外层为null */
+    private final PathNode parent;
+
+    /** 属性名 */
+    private final String fieldName;
+
+    /** 规则编码 与CheckRule中的编码一致 */
+    private final int rule;
+
+    /** 被拒绝的值 */
+    private final Object rejectedValue;
+
+    /** 消息模板 */
+    private final MessageTemplate template;
+
+    /** 模板参数 */
+    private final Object[] args;
+
+    /** 默认语言的消息(不包括前缀) */
+    private String message;
+
+    /**
+     * @param parent
+     *            所在对象的路径 最外层为null
+     * @param fieldName
+     *            属性名
+     * @param rule
+     *            规则编码
+     * @param rejectedValue
+     *            被拒绝的值
+     * @param template
+     *            消息模板
+     * @param args
+     *            模板参数
+     */
+    public CheckViolation(PathNode parent, String fieldName, int rule, Object rejectedValue, MessageTemplate template, Object... args) {
+        this.parent = parent;
+        this.fieldName = fieldName;
+        this.rule = rule;
+        this.rejectedValue = rejectedValue;
+        this.template = template;
+        this.args = args;
+    }
+
+    /**
+     * 复制一个路径不同的校验信息 已经生成的消息也一起复用
+     *
+     * @param path
+     *            新的所在对象的路径
+     * @return
+     */
+    public CheckViolation withParent(PathNode path) {
+        CheckViolation copy = new CheckViolation(path, fieldName, rule, rejectedValue, template, args);
+        copy.message = message;
+        return copy;
+    }
+
+    /**
+     * 取得默认语言的消息 嵌套校验时带有路径前缀，例如items[3].address.
+     *
+     * @return
+     */
+    public String getMessage() {
+        if (null == message) {
+            message = template.format(args);
+        }
+        return withPrefix(message);
+    }
+
+    /**
+     * 取得指定语言的消息
+     *
+     * @param locale
+     *            语言
+     * @return
+     */
+    public String getMessage(Locale locale) {
+        return withPrefix(template.format(locale, args));
+    }
+
+    private String withPrefix(String msg) {
+        if (null == parent) {
+            return msg;
+        }
+        return parent.appendTo(new StringBuilder()).append('.').append(msg).toString();
+    }
+
+    /**
+     * 取得属性的完整路径 例如items[3].address.zip
+     *
+     * @return
+     */
+    public String getPath() {
+        if (null == parent) {
+            return fieldName;
+        }
+        return parent.appendTo(new StringBuilder()).append('.').append(fieldName).toString();
+    }
+
+    public PathNode getParent() {
+        return parent;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public int getRule() {
+        return rule;
+    }
+
+    public Object getRejectedValue() {
+        return rejectedValue;
+    }
+
+    public MessageTemplate getTemplate() {
+        return template;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.collect.Lists;
 import com.wisea.cloud.common.datacheck.annotation.Check;
+import com.wisea.cloud.common.datacheck.plan.CheckRule;
 import com.wisea.cloud.common.datacheck.util.ConverterUtil;
 
 /**
@@ -40,6 +41,15 @@ public class DataCheck {
     /** 中英文长度限制(test同时包含minLength和maxLength生效) */
     private Integer[] mixLengthRange;
 
+    /** 字节长度限制 按charset编码后的字节数(test包含minLength或maxLength生效) */
+    private Integer byteLength = -1;
+
+    /** 字节长度限制(test同时包含minLength和maxLength生效) */
+    private Integer[] byteLengthRange;
+
+    /** 计算字节长度的字符集 UTF-8、GBK等 */
+    private String charset = "UTF-8";
+
     /** 数据有效性(test包含liveable生效) */
     private String[] liveable;
 
@@ -68,6 +78,10 @@ public class DataCheck {
     @JsonIgnore
     private Check annotation = null;
 
+    /** 编译后的校验规则 第一次校验时编译，修改校验属性时清空 */
+    @JsonIgnore
+    private volatile CheckRule rule;
+
     public DataCheck() {
 
     }
@@ -144,6 +158,7 @@ public class DataCheck {
 
     public void setTest(String[] test) {
         this.test = test;
+        this.rule = null;
     }
 
     public boolean isCascade() {
@@ -160,6 +175,7 @@ public class DataCheck {
 
     public void setLength(Integer length) {
         this.length = length;
+        this.rule = null;
     }
 
     public Integer[] getLengthRange() {
@@ -168,6 +184,7 @@ public class DataCheck {
 
     public void setLengthRange(Integer[] lengthRange) {
         this.lengthRange = lengthRange;
+        this.rule = null;
     }
 
     public Integer getMixLength() {
@@ -176,6 +193,7 @@ public class DataCheck {
 
     public void setMixLength(Integer mixLength) {
         this.mixLength = mixLength;
+        this.rule = null;
     }
 
     public Integer[] getMixLengthRange() {
@@ -184,6 +202,34 @@ public class DataCheck {
 
     public void setMixLengthRange(Integer[] mixLengthRange) {
         this.mixLengthRange = mixLengthRange;
+        this.rule = null;
+    }
+
+    public Integer getByteLength() {
+        return byteLength;
+    }
+
+    public void setByteLength(Integer byteLength) {
+        this.byteLength = byteLength;
+        this.rule = null;
+    }
+
+    public Integer[] getByteLengthRange() {
+        return byteLengthRange;
+    }
+
+    public void setByteLengthRange(Integer[] byteLengthRange) {
+        this.byteLengthRange = byteLengthRange;
+        this.rule = null;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+        this.rule = null;
     }
 
     public String[] getLiveable() {
@@ -192,6 +238,7 @@ public class DataCheck {
 
     public void setLiveable(String[] liveable) {
         this.liveable = liveable;
+        this.rule = null;
     }
 
     public String[] getRegex() {
@@ -200,6 +247,7 @@ public class DataCheck {
 
     public void setRegex(String[] regex) {
         this.regex = regex;
+        this.rule = null;
     }
 
     public String getRequiredMsg() {
@@ -208,6 +256,7 @@ public class DataCheck {
 
     public void setRequiredMsg(String requiredMsg) {
         this.requiredMsg = requiredMsg;
+        this.rule = null;
     }
 
     public String getLengthMsg() {
@@ -216,6 +265,7 @@ public class DataCheck {
 
     public void setLengthMsg(String lengthMsg) {
         this.lengthMsg = lengthMsg;
+        this.rule = null;
     }
 
     public String getLiveableMsg() {
@@ -224,6 +274,7 @@ public class DataCheck {
 
     public void setLiveableMsg(String liveableMsg) {
         this.liveableMsg = liveableMsg;
+        this.rule = null;
     }
 
     public String getRegexMsg() {
@@ -232,6 +283,7 @@ public class DataCheck {
 
     public void setRegexMsg(String regexMsg) {
         this.regexMsg = regexMsg;
+        this.rule = null;
     }
 
     public String getLogic() {
@@ -240,6 +292,7 @@ public class DataCheck {
 
     public void setLogic(String logic) {
         this.logic = logic;
+        this.rule = null;
     }
 
     public String getLogicMsg() {
@@ -248,6 +301,7 @@ public class DataCheck {
 
     public void setLogicMsg(String logicMsg) {
         this.logicMsg = logicMsg;
+        this.rule = null;
     }
 
     public void setAnnotation(Check annotation) {
@@ -267,6 +321,22 @@ public class DataCheck {
         this.setLogicMsg(context + this.getLogicMsg());
     }
 
+    /**
+     * 取得编译后的校验规则
+     * <p/>
+     * 每个DataCheck只编译一次，之后的校验直接使用。通过setter修改校验属性或修改nullSkip后重新编译。
+     * 
+     * @return
+     */
+    public CheckRule getRule() {
+        CheckRule compiled = rule;
+        if (null == compiled || compiled.isNullSkip() != nullSkip) {
+            compiled = CheckRule.of(getAnnotation());
+            rule = compiled;
+        }
+        return compiled;
+    }
+
     /**
      * 返回一个check注解实例
      * 
@@ -317,6 +387,28 @@ public class DataCheck {
                 return mixLength;
             }
 
+            @Override
+            public int[] byteLengthRange() {
+                int[] result = null;
+                if (null != byteLengthRange) {
+                    result = new int[byteLengthRange.length];
+                    for (int i = 0; i < byteLengthRange.length; i++) {
+                        result[i] = byteLengthRange[i];
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public int byteLength() {
+                return byteLength;
+            }
+
+            @Override
+            public String charset() {
+                return charset;
+            }
+
             @Override
             public String logicMsg() {
                 return logicMsg;
@@ -394,6 +486,15 @@ public class DataCheck {
         /** 中英文长度限制(test同时包含minLength和maxLength生效) */
         private Integer[] mixLengthRange;
 
+        /** 字节长度限制 按charset编码后的字节数(test包含minLength或maxLength生效) */
+        private Integer byteLength = -1;
+
+        /** 字节长度限制(test同时包含minLength和maxLength生效) */
+        private Integer[] byteLengthRange;
+
+        /** 计算字节长度的字符集 UTF-8、GBK等 */
+        private String charset = "UTF-8";
+
         /** 数据有效性(test包含liveable生效) */
         private String[] liveable;
 
@@ -463,6 +564,21 @@ public class DataCheck {
             return this;
         }
 
+        public DataCheckBuilder setByteLength(Integer byteLength) {
+            this.byteLength = byteLength;
+            return this;
+        }
+
+        public DataCheckBuilder setByteLengthRange(Integer[] byteLengthRange) {
+            this.byteLengthRange = byteLengthRange;
+            return this;
+        }
+
+        public DataCheckBuilder setCharset(String charset) {
+            this.charset = charset;
+            return this;
+        }
+
         public DataCheckBuilder setLiveable(String[] liveable) {
             this.liveable = liveable;
             return this;
@@ -539,6 +655,18 @@ public class DataCheck {
             return mixLengthRange;
         }
 
+        public Integer getByteLength() {
+            return byteLength;
+        }
+
+        public Integer[] getByteLengthRange() {
+            return byteLengthRange;
+        }
+
+        public String getCharset() {
+            return charset;
+        }
+
         public String[] getLiveable() {
             return liveable;
         }
@@ -0,0 +1,116 @@
+package com.wisea.cloud.common.datacheck.entity;
+
+/**
+ * 校验路径节点
+ * <p/>
+ * 嵌套校验时每一层只创建一个节点并指向父节点，同一层的校验信息共用同一个节点，<br/>
+ * 路径字符串(例如items[3].address)只在需要时才拼接。
+ */
+public final class PathNode {
+    /** 父节点 最外层为null */
+    private final PathNode parent;
+
+    /** 属性名 List或Map的元素没有属性名时为null */
+    private final String name;
+
+    /** 下标或Map的key */
+    private final Object key;
+
+    /** 是否是List或Map的元素 */
+    private final boolean element;
+
+    private PathNode(PathNode parent, String name, Object key, boolean element) {
+        this.parent = parent;
+        this.name = name;
+        this.key = key;
+        this.element = element;
+    }
+
+    /**
+     * 属性节点 例如address
+     *
+     * @param parent
+     *            父节点
+     * @param name
+     *            属性名
+     * @return
+     */
+    public static PathNode property(PathNode parent, String name) {
+        return new PathNode(parent, name, null, false);
+    }
+
+    /**
+     * List或Map的元素节点 例如items[3]，name为空时为[3]
+     *
+     * @param parent
+     *            父节点
+     * @param name
+     *            属性名 可以为空
+     * @param key
+     *            下标或Map的key
+     * @return
+     */
+    public static PathNode element(PathNode parent, String name, Object key) {
+        return new PathNode(parent, name, key, true);
+    }
+
+    public PathNode getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public boolean isElement() {
+        return element;
+    }
+
+    /**
+     * 把路径中的from节点替换成to节点 from之后的节点重新创建
+     * <p/>
+     * 同一个对象在多处被引用时，复用第一次的校验信息并换成新的路径。
+     *
+     * @param node
+     *            路径 必须是from或from的子节点
+     * @param from
+     *            原来的起始节点 可以为null(最外层)
+     * @param to
+     *            新的起始节点 可以为null(最外层)
+     * @return
+     */
+    public static PathNode rebase(PathNode node, PathNode from, PathNode to) {
+        if (node == from) {
+            return to;
+        }
+        return new PathNode(rebase(node.parent, from, to), node.name, node.key, node.element);
+    }
+
+    /**
+     * 从最外层开始拼接路径 节点之间用.分隔
+     *
+     * @param sb
+     * @return
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (null != parent) {
+            parent.appendTo(sb).append('.');
+        }
+        if (null != name) {
+            sb.append(name);
+        }
+        if (element) {
+            sb.append('[').append(key).append(']');
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
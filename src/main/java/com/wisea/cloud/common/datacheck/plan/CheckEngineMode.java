@@ -0,0 +1,11 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+/**
+ * 校验引擎模式
+ */
+public enum CheckEngineMode {
+    /** 反射方式:逐个解释@Check注解 */
+    REFLECT,
+    /** 生成方式:首次校验某类时生成该类专用的校验器 */
+    GENERATED
+}
@@ -0,0 +1,246 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.util.ClassCache;
+import com.wisea.cloud.common.datacheck.util.FieldAccessor;
+
+/**
+ * 类的校验计划
+ * <p/>
+ * 每个Class只构建一次，保存该类(包括父类)的全部属性以及声明了@Check的属性，<br/>
+ * 校验时直接使用计划中的元数据，不再重复反射取得属性和注解。
+ */
+public final class CheckPlan {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(CheckPlan.class);
+
+    /** 校验计划缓存 保存在各个Class中，不会阻止类和ClassLoader被卸载，清空时替换成新的实例 */
+    private static volatile ClassCache<CheckPlan> planCache = new ClassCache<>(CheckPlan::new);
+
+    /** 类 */
+    private final Class<?> type;
+
+    /** 全部属性(包括父类) */
+    private final List<FieldPlan> fields;
+
+    /** 声明了@Check的属性 */
+    private final List<FieldPlan> checkFields;
+
+    /** 声明了@Check的属性在全部属性中的下标 */
+    private final int[] checkIndexes;
+
+    /** 声明了@Check的属性的逻辑表达式引用的属性(全部属性中的下标) 没有逻辑校验时为null */
+    private final int[][] logicDependencies;
+
+    /** 是否没有重写toString和equals 此时判断是否为空不需要调用toString */
+    private final boolean plainObject;
+
+    /** 编译时生成的校验器 没有时为null */
+    private final DataChecker compiledChecker;
+
+    /** 运行时生成的校验器 生成失败时为null */
+    private volatile DataChecker generatedChecker;
+
+    /** 是否已经尝试生成校验器 */
+    private volatile boolean generated = false;
+
+    private CheckPlan(Class<?> type) {
+        this.type = type;
+        List<FieldPlan> all = Lists.newArrayList();
+        List<FieldPlan> checked = Lists.newArrayList();
+        for (FieldAccessor accessor : FieldAccessor.forClass(type)) {
+            FieldPlan fieldPlan = new FieldPlan(accessor);
+            all.add(fieldPlan);
+            if (fieldPlan.isChecked()) {
+                checked.add(fieldPlan);
+                // 不认识的test在构建计划时提示，校验时忽略
+                for (String test : fieldPlan.getRule().getUnknownTests()) {
+                    logger.warn("unknown test [{}] of {}.{} is ignored.", test, type.getName(), fieldPlan.getName());
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(all);
+        this.checkFields = Collections.unmodifiableList(checked);
+        this.checkIndexes = new int[checked.size()];
+        this.logicDependencies = new int[checked.size()][];
+        for (int f = 0; f < checkIndexes.length; f++) {
+            FieldPlan fieldPlan = checked.get(f);
+            checkIndexes[f] = all.indexOf(fieldPlan);
+            if (fieldPlan.hasLogic()) {
+                logicDependencies[f] = findDependencies(all, fieldPlan.getRule());
+            }
+        }
+        this.plainObject = isPlainObject(type);
+        this.compiledChecker = findCompiledChecker();
+    }
+
+    /**
+     * 逻辑表达式中出现的属性名 按名称匹配，结果只会偏多
+     *
+     * @param all
+     *            全部属性
+     * @param rule
+     *            校验规则
+     * @return 属性下标
+     */
+    private static int[] findDependencies(List<FieldPlan> all, CheckRule rule) {
+        int[] indexes = new int[all.size()];
+        int count = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (rule.getLogicNames().contains(all.get(i).getName())) {
+                indexes[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    private static boolean isPlainObject(Class<?> type) {
+        try {
+            return Object.class == type.getMethod("toString").getDeclaringClass() && Object.class == type.getMethod("equals", Object.class).getDeclaringClass();
+        } catch (NoSuchMethodException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 查找编译时生成的校验器(类名+DataChecker)
+     * 
+     * @return
+     */
+    private DataChecker findCompiledChecker() {
+        ClassLoader loader = type.getClassLoader();
+        if (null == loader || checkFields.isEmpty()) {
+            return null;
+        }
+        Class<?> checkerClass;
+        try {
+            checkerClass = Class.forName(type.getName() + DataChecker.CLASS_SUFFIX, true, loader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (LinkageError e) {
+            logger.warn("load compiled DataChecker for " + type.getName() + " failed.", e);
+            return null;
+        }
+        if (!DataChecker.class.isAssignableFrom(checkerClass)) {
+            return null;
+        }
+        try {
+            DataChecker checker = (DataChecker) checkerClass.newInstance();
+            String[] names = new String[checkFields.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = checkFields.get(i).getName();
+            }
+            // 属性顺序不一致(例如类修改后没有重新编译)时不能使用
+            if (!Arrays.equals(names, checker.getFieldNames())) {
+                logger.warn("compiled DataChecker {} does not match the fields of {}, use reflect engine instead.", checkerClass.getName(), type.getName());
+                return null;
+            }
+            return checker;
+        } catch (Exception | LinkageError e) {
+            logger.warn("create compiled DataChecker for " + type.getName() + " failed.", e);
+            return null;
+        }
+    }
+
+    /**
+     * 取得某类的校验计划
+     * <p/>
+     * 同一个类只构建一次，并发首次调用时其他线程等待构建完成，之后都返回同一个计划
+     * 
+     * @param clazz
+     *            类
+     * @return
+     */
+    public static CheckPlan forClass(Class<?> clazz) {
+        return planCache.get(clazz);
+    }
+
+    /**
+     * 清空校验计划缓存
+     */
+    public static void clear() {
+        planCache = new ClassCache<>(CheckPlan::new);
+    }
+
+    /**
+     * 取得编译时生成的校验器
+     * <p/>
+     * 由DataCheckProcessor在编译时生成，没有时返回null
+     * 
+     * @return
+     */
+    public DataChecker getCompiledChecker() {
+        return compiledChecker;
+    }
+
+    /**
+     * 取得运行时生成的校验器
+     * <p/>
+     * 首次调用时生成，生成失败时返回null，此时应使用反射方式校验
+     * 
+     * @return
+     */
+    public DataChecker getGeneratedChecker() {
+        if (!generated) {
+            synchronized (this) {
+                if (!generated) {
+                    generatedChecker = CheckerGenerator.generate(this);
+                    generated = true;
+                }
+            }
+        }
+        return generatedChecker;
+    }
+
+    /**
+     * 是否没有重写toString和equals
+     * <p/>
+     * 这样的对象用ConverterUtil.isEmpty(EmptyChecker的兼容模式)判断一定不为空
+     * 
+     * @return
+     */
+    public boolean isPlainObject() {
+        return plainObject;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public List<FieldPlan> getFields() {
+        return fields;
+    }
+
+    public List<FieldPlan> getCheckFields() {
+        return checkFields;
+    }
+
+    /**
+     * 取得声明了@Check的属性在全部属性中的下标
+     *
+     * @param checkField
+     *            在getCheckFields()中的下标
+     * @return
+     */
+    public int getFieldIndex(int checkField) {
+        return checkIndexes[checkField];
+    }
+
+    /**
+     * 取得逻辑表达式引用的属性
+     *
+     * @param checkField
+     *            在getCheckFields()中的下标
+     * @return 在getFields()中的下标，没有逻辑校验时为null
+     */
+    public int[] getLogicDependencies(int checkField) {
+        return logicDependencies[checkField];
+    }
+}
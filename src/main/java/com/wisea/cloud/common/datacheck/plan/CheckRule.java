@@ -0,0 +1,569 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wisea.cloud.common.datacheck.annotation.Check;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+import com.wisea.cloud.common.datacheck.util.PatternCache;
+
+/**
+ * 编译后的校验规则
+ * <p/>
+ * 将Check.test()一次性解析成规则编码和位掩码，并提前取出长度、区间、有效值、正则和消息模板，<br/>
+ * 校验时只需按编码分支，不再进行字符串比较。<br/>
+ * 只读取test中用到的注解属性，与逐个解释test时读取的属性一致。
+ */
+public final class CheckRule {
+    /** 非空 */
+    public static final int REQUIRED = 1;
+    /** 标准长度 */
+    public static final int LENGTH = 1 << 1;
+    /** 最小长度 */
+    public static final int MIN_LENGTH = 1 << 2;
+    /** 最大长度 */
+    public static final int MAX_LENGTH = 1 << 3;
+    /** 有效性 */
+    public static final int LIVEABLE = 1 << 4;
+    /** 正则表达式 */
+    public static final int REGEX = 1 << 5;
+    /** 逻辑表达式 */
+    public static final int LOGIC = 1 << 6;
+
+    /** 长度类规则 */
+    private static final int LENGTH_MASK = LENGTH | MIN_LENGTH | MAX_LENGTH;
+
+    /** 按Check注解缓存的规则 弱引用的键按==比较，不会阻止注解所在的类被卸载 */
+    private static final LoadingCache<Check, CheckRule> CACHE = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<Check, CheckRule>() {
+        @Override
+        public CheckRule load(Check check) {
+            return new CheckRule(check);
+        }
+    });
+
+    /** 规则编码 按test的顺序，空值跳过时只保留REQUIRED */
+    private final int[] tests;
+
+    /** 全部规则的位掩码 */
+    private final int mask;
+
+    /** 空值跳过 */
+    private final boolean nullSkip;
+
+    /** 不认识的test */
+    private final List<String> unknownTests;
+
+    /** 长度 */
+    private int length = -1;
+
+    /** 中英文长度 */
+    private int mixLength = -1;
+
+    /** 字节长度 */
+    private int byteLength = -1;
+
+    /** 是否进行区间校验(test同时包含minLength和maxLength) */
+    private boolean range;
+
+    /** 长度区间 不校验时为null */
+    private int[] lengthRange;
+
+    /** 中英文长度区间 不校验时为null */
+    private int[] mixLengthRange;
+
+    /** 字节长度区间 不校验时为null */
+    private int[] byteLengthRange;
+
+    /** 计算字节长度的字符集 不校验字节长度时为null */
+    private Charset charset;
+
+    /** 有效值 不校验时为null */
+    private String[] liveables;
+
+    /** 有效值集合 不校验时为null */
+    private LiveableSet liveableSet;
+
+    /** 正则 不校验时为null */
+    private String[] regex;
+
+    /** 编译后的正则 正则不正确时为null */
+    private Pattern[] patterns;
+
+    /** 逻辑表达式 */
+    private String logic;
+
+    /** 逻辑表达式引用的上层对象层数 表达式中parent出现的次数 */
+    private int parentReach;
+
+    /** 逻辑表达式中出现的名称(可能是属性名) */
+    private Set<String> logicNames = Collections.emptySet();
+
+    /** 逻辑表达式调用的全局函数(#name(...)) */
+    private Set<String> logicFunctions = Collections.emptySet();
+
+    /** 消息模板 */
+    private MessageTemplate requiredMsg;
+    private MessageTemplate lengthMsg;
+    private MessageTemplate liveableMsg;
+    private MessageTemplate regexMsg;
+    private MessageTemplate logicMsg;
+
+    private CheckRule(Check check) {
+        String[] testArray = check.test();
+        this.nullSkip = check.nullSkip();
+        List<String> unknown = Lists.newArrayList();
+        int[] codes = new int[null == testArray ? 0 : testArray.length];
+        int count = 0;
+        int allMask = 0;
+        if (null != testArray) {
+            for (String t : testArray) {
+                int code = codeOf(t);
+                if (0 == code) {
+                    unknown.add(t);
+                    continue;
+                }
+                allMask |= code;
+                // 空值跳过时只进行required校验
+                if (!nullSkip || REQUIRED == code) {
+                    codes[count++] = code;
+                }
+            }
+        }
+        this.tests = Arrays.copyOf(codes, count);
+        this.mask = nullSkip ? allMask & REQUIRED : allMask;
+        this.unknownTests = unknown;
+
+        if (has(REQUIRED)) {
+            requiredMsg = MessageTemplate.of(check.requiredMsg());
+        }
+        if (has(LENGTH_MASK)) {
+            length = check.length();
+            mixLength = check.mixLength();
+            byteLength = check.byteLength();
+            lengthMsg = MessageTemplate.of(check.lengthMsg());
+        }
+        // test中同时有minLength和maxLength时进行区间校验
+        if (isRange(mask)) {
+            int[] lenRange = check.lengthRange();
+            int[] mixRange = check.mixLengthRange();
+            int[] byteRange = check.byteLengthRange();
+            lengthRange = null != lenRange && lenRange.length >= 2 ? lenRange : null;
+            mixLengthRange = null != mixRange && mixRange.length >= 2 ? mixRange : null;
+            byteLengthRange = null != byteRange && byteRange.length >= 2 ? byteRange : null;
+            range = null != lengthRange || null != mixLengthRange || null != byteLengthRange;
+        }
+        if (hasByteLength()) {
+            // 字符集不支持时抛出异常
+            charset = Charset.forName(check.charset());
+        }
+        if (has(LIVEABLE)) {
+            String[] values = check.liveable();
+            liveables = null != values && values.length > 0 ? values : null;
+            liveableSet = LiveableSet.of(liveables);
+            liveableMsg = MessageTemplate.of(check.liveableMsg());
+        }
+        if (has(REGEX)) {
+            String[] regs = check.regex();
+            if (null != regs && regs.length > 0) {
+                regex = regs;
+                patterns = compilePatterns(regs);
+            }
+            regexMsg = MessageTemplate.of(check.regexMsg());
+        }
+        if (has(LOGIC)) {
+            logic = check.logic();
+            parentReach = parentReach(logic);
+            scanLogic(logic);
+            logicMsg = MessageTemplate.of(check.logicMsg());
+        }
+    }
+
+    /**
+     * 是否进行区间校验 按规则编码判断，minLength和maxLength必须是单独的test
+     *
+     * @param mask
+     *            规则的位掩码 空值跳过时只包含REQUIRED
+     * @return 同时包含MIN_LENGTH和MAX_LENGTH时返回true
+     */
+    public static boolean isRange(int mask) {
+        return (MIN_LENGTH | MAX_LENGTH) == (mask & (MIN_LENGTH | MAX_LENGTH));
+    }
+
+    /**
+     * 逻辑表达式引用的上层对象层数
+     * <p/>
+     * 按parent出现的次数计算，例如parent.parent.code为2，结果只会偏大，不会偏小。
+     *
+     * @param logic
+     *            逻辑表达式
+     * @return 不引用上层对象时为0
+     */
+    public static int parentReach(String logic) {
+        if (null == logic) {
+            return 0;
+        }
+        int count = 0;
+        int from = 0;
+        int idx;
+        while ((idx = logic.indexOf("parent", from)) >= 0) {
+            from = idx + 6;
+            boolean start = 0 == idx || !Character.isJavaIdentifierPart(logic.charAt(idx - 1));
+            boolean end = from == logic.length() || !Character.isJavaIdentifierPart(logic.charAt(from));
+            if (start && end) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取出逻辑表达式中的名称和全局函数调用 字符串常量也作为名称，方法名不计入
+     *
+     * @param spel
+     *            逻辑表达式
+     */
+    private void scanLogic(String spel) {
+        if (null == spel) {
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        Set<String> calls = new HashSet<>();
+        int len = spel.length();
+        int i = 0;
+        while (i < len) {
+            char c = spel.charAt(i);
+            if ('\'' == c) {
+                // 字符串常量可能是索引中的属性名(例如parent['code']) ''为转义的单引号
+                int start = ++i;
+                while (i < len) {
+                    if ('\'' == spel.charAt(i)) {
+                        if (i + 1 < len && '\'' == spel.charAt(i + 1)) {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                names.add(spel.substring(start, Math.min(i, len)).replace("''", "'"));
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < len && Character.isJavaIdentifierPart(spel.charAt(i))) {
+                    i++;
+                }
+                int next = i;
+                while (next < len && Character.isWhitespace(spel.charAt(next))) {
+                    next++;
+                }
+                if (next < len && '(' == spel.charAt(next)) {
+                    // 方法调用 #name(...)为全局函数
+                    if (start > 0 && '#' == spel.charAt(start - 1)) {
+                        calls.add(spel.substring(start, i));
+                    }
+                } else {
+                    names.add(spel.substring(start, i));
+                }
+            } else {
+                i++;
+            }
+        }
+        logicNames = Collections.unmodifiableSet(names);
+        logicFunctions = Collections.unmodifiableSet(calls);
+    }
+
+    /**
+     * 编译Check注解
+     *
+     * @param check
+     *            Check注解
+     * @return check为空时返回null
+     */
+    public static CheckRule of(Check check) {
+        return null == check ? null : new CheckRule(check);
+    }
+
+    /**
+     * 取得Check注解编译后的规则
+     * <p/>
+     * 同一个注解只编译一次，校验计划和单个属性(checkOneField、方法参数)的校验共用
+     *
+     * @param check
+     *            Check注解
+     * @return check为空时返回null
+     */
+    public static CheckRule cached(Check check) {
+        if (null == check) {
+            return null;
+        }
+        try {
+            return CACHE.getUnchecked(check);
+        } catch (UncheckedExecutionException e) {
+            // 与直接编译抛出相同的异常
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * test名称转换成规则编码 不区分大小写
+     *
+     * @param test
+     * @return 不认识的test返回0
+     */
+    public static int codeOf(String test) {
+        if (test.equalsIgnoreCase("required")) {
+            return REQUIRED;
+        }
+        if (test.equalsIgnoreCase("length")) {
+            return LENGTH;
+        }
+        if (test.equalsIgnoreCase("minLength")) {
+            return MIN_LENGTH;
+        }
+        if (test.equalsIgnoreCase("maxLength")) {
+            return MAX_LENGTH;
+        }
+        if (test.equalsIgnoreCase("liveable")) {
+            return LIVEABLE;
+        }
+        if (test.equalsIgnoreCase("regex")) {
+            return REGEX;
+        }
+        if (test.equalsIgnoreCase("logic")) {
+            return LOGIC;
+        }
+        return 0;
+    }
+
+    /**
+     * 编译正则 正则不正确时返回null，校验时再编译并抛出异常
+     */
+    private static Pattern[] compilePatterns(String[] regs) {
+        Pattern[] compiled = new Pattern[regs.length];
+        try {
+            for (int i = 0; i < regs.length; i++) {
+                compiled[i] = PatternCache.get(regs[i]);
+            }
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+        return compiled;
+    }
+
+    /**
+     * 正则校验 全部通过才返回true
+     *
+     * @param str
+     *            值
+     * @return
+     */
+    public boolean matches(String str) {
+        for (int i = 0; i < regex.length; i++) {
+            // 正则不正确时在这里编译并抛出异常
+            Pattern pattern = null != patterns ? patterns[i] : PatternCache.get(regex[i]);
+            if (!pattern.matcher(str).find()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含某类规则
+     *
+     * @param rule
+     *            规则编码 可以是多个编码的组合
+     * @return
+     */
+    public boolean has(int rule) {
+        return 0 != (mask & rule);
+    }
+
+    /**
+     * 是否需要逻辑校验
+     *
+     * @return
+     */
+    public boolean hasLogic() {
+        return has(LOGIC);
+    }
+
+    /**
+     * 是否需要长度相关的字符串
+     *
+     * @return
+     */
+    public boolean hasLengthTest() {
+        return has(LENGTH_MASK) || range;
+    }
+
+    public int[] getTests() {
+        return tests;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public boolean isNullSkip() {
+        return nullSkip;
+    }
+
+    public List<String> getUnknownTests() {
+        return unknownTests;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getMixLength() {
+        return mixLength;
+    }
+
+    public int getByteLength() {
+        return byteLength;
+    }
+
+    /**
+     * 是否需要值的字符串形式 有长度校验或正则校验时需要
+     *
+     * @return
+     */
+    public boolean needsString() {
+        return has(LENGTH_MASK) || range || null != regex;
+    }
+
+    /**
+     * 是否需要中英文长度
+     *
+     * @return
+     */
+    public boolean hasMixLength() {
+        return mixLength > 0 || null != mixLengthRange;
+    }
+
+    /**
+     * 是否需要字节长度
+     *
+     * @return
+     */
+    public boolean hasByteLength() {
+        return byteLength > 0 || null != byteLengthRange;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean isRange() {
+        return range;
+    }
+
+    public int[] getLengthRange() {
+        return lengthRange;
+    }
+
+    public int[] getMixLengthRange() {
+        return mixLengthRange;
+    }
+
+    public int[] getByteLengthRange() {
+        return byteLengthRange;
+    }
+
+    public String[] getLiveables() {
+        return liveables;
+    }
+
+    /**
+     * 取得有效值集合
+     *
+     * @return 没有有效性校验时返回null
+     */
+    public LiveableSet getLiveableSet() {
+        return liveableSet;
+    }
+
+    public String[] getRegex() {
+        return regex;
+    }
+
+    /**
+     * 取得编译后的正则
+     *
+     * @return 没有正则校验或正则不正确时返回null
+     */
+    public Pattern[] getPatterns() {
+        return patterns;
+    }
+
+    public String getLogic() {
+        return logic;
+    }
+
+    public int getParentReach() {
+        return parentReach;
+    }
+
+    /**
+     * 取得逻辑表达式中出现的名称 包括属性名、变量名和关键字
+     *
+     * @return 没有逻辑校验时为空
+     */
+    public Set<String> getLogicNames() {
+        return logicNames;
+    }
+
+    /**
+     * 逻辑表达式是否调用了全局函数 函数的结果可能与属性值无关
+     *
+     * @return
+     */
+    public boolean isLogicCallsFunction() {
+        return !logicFunctions.isEmpty();
+    }
+
+    /**
+     * 取得逻辑表达式调用的全局函数名
+     *
+     * @return 没有调用时为空
+     */
+    public Set<String> getLogicFunctions() {
+        return logicFunctions;
+    }
+
+    public MessageTemplate getRequiredMsg() {
+        return requiredMsg;
+    }
+
+    public MessageTemplate getLengthMsg() {
+        return lengthMsg;
+    }
+
+    public MessageTemplate getLiveableMsg() {
+        return liveableMsg;
+    }
+
+    public MessageTemplate getRegexMsg() {
+        return regexMsg;
+    }
+
+    public MessageTemplate getLogicMsg() {
+        return logicMsg;
+    }
+}
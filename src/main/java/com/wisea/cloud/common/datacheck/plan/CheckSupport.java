@@ -0,0 +1,96 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.wisea.cloud.common.datacheck.entity.CheckViolation;
+import com.wisea.cloud.common.datacheck.entity.PathNode;
+import com.wisea.cloud.common.datacheck.util.EmptyChecker;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+
+/**
+ * 生成的校验器所调用的公共方法
+ * <p/>
+ * 生成的类与DataCheck不在同一个ClassLoader中，所以这里的方法必须是public的。
+ */
+public final class CheckSupport {
+
+    private CheckSupport() {
+    }
+
+    /**
+     * 添加校验不通过的信息
+     * 
+     * @param violations
+     *            校验不通过的信息
+     * @param path
+     *            所在对象的路径
+     * @param rule
+     *            规则编码
+     * @param val
+     *            值
+     * @param template
+     *            编译后的消息模板
+     * @param feildName
+     *            属性名
+     */
+    public static void addViolation(List<CheckViolation> violations, PathNode path, int rule, Object val, MessageTemplate template, String feildName) {
+        violations.add(new CheckViolation(path, feildName, rule, val, template, feildName));
+    }
+
+    /**
+     * 添加长度校验不通过的信息
+     * 
+     * @param violations
+     *            校验不通过的信息
+     * @param path
+     *            所在对象的路径
+     * @param rule
+     *            规则编码
+     * @param val
+     *            值
+     * @param template
+     *            编译后的消息模板
+     * @param feildName
+     *            属性名
+     * @param kind
+     *            标准/最小/最大
+     * @param length
+     *            长度
+     */
+    public static void addLengthViolation(List<CheckViolation> violations, PathNode path, int rule, Object val, MessageTemplate template, String feildName,
+            String kind, int length) {
+        violations.add(new CheckViolation(path, feildName, rule, val, template, feildName, kind, length));
+    }
+
+    /**
+     * 数据有效性校验
+     * 
+     * @param val
+     *            值
+     * @param liveables
+     *            有效值集合
+     * @return
+     */
+    public static boolean isLiveable(Object val, LiveableSet liveables) {
+        return liveables.contains(val);
+    }
+
+    /**
+     * 正则校验 使用已经转换好的字符串，与长度校验共用
+     * 
+     * @param str
+     *            EmptyChecker.toString(val)的结果
+     * @param patterns
+     *            编译后的正则
+     * @return
+     */
+    public static boolean matchesString(String str, Pattern[] patterns) {
+        for (Pattern pattern : patterns) {
+            if (!pattern.matcher(str).find()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,538 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.expression.EvaluationContext;
+
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.entity.PathNode;
+import com.wisea.cloud.common.datacheck.util.DataCheckUtil;
+import com.wisea.cloud.common.datacheck.util.EmptyChecker;
+import com.wisea.cloud.common.datacheck.util.FieldAccessor;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+import com.wisea.cloud.common.datacheck.util.PatternCache;
+import com.wisea.cloud.common.datacheck.util.StringMetrics;
+
+/**
+ * 校验器生成器
+ * <p/>
+ * 为一个CheckPlan生成专用的DataChecker实现类。每个校验属性生成一个方法，<br/>
+ * 方法中按照编译后的CheckRule的规则编码顺序直接展开required/length/minLength/maxLength/liveable/regex/logic的判断，<br/>
+ * 与DataCheckUtil.checkRule使用同一个规则，不再解析test。生成的校验信息与DataCheckUtil.checkOneField完全一致。
+ */
+final class CheckerGenerator implements Opcodes {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(CheckerGenerator.class);
+
+    /** 生成类的序号 */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String STRING = Type.getInternalName(String.class);
+    private static final String LIST = Type.getInternalName(List.class);
+    private static final String CHECKER = Type.getInternalName(DataChecker.class);
+    private static final String SUPPORT = Type.getInternalName(CheckSupport.class);
+    private static final String EMPTY = Type.getInternalName(EmptyChecker.class);
+    private static final String METRICS = Type.getInternalName(StringMetrics.class);
+    private static final String ACCESSOR = Type.getInternalName(FieldAccessor.class);
+    private static final String ACCESSOR_ARRAY = Type.getDescriptor(FieldAccessor[].class);
+    private static final String OBJECT_ARRAY = Type.getDescriptor(Object[].class);
+    private static final String GET_VALUE_DESC = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+    private static final String PATH = Type.getDescriptor(PathNode.class);
+    private static final String TEMPLATE = Type.getDescriptor(MessageTemplate.class);
+    private static final String CHECK_FIELD_DESC = "(ILjava/lang/Object;" + PATH + "Ljava/util/List;Lorg/springframework/expression/EvaluationContext;)V";
+    private static final String CHECK_ONE_DESC = "(Ljava/lang/Object;" + PATH + "Ljava/util/List;Lorg/springframework/expression/EvaluationContext;)V";
+
+    /** 局部变量:this */
+    private static final int VAR_THIS = 0;
+    /** 局部变量:值 */
+    private static final int VAR_VAL = 1;
+    /** 局部变量:所在对象的路径 */
+    private static final int VAR_PATH = 2;
+    /** 局部变量:校验不通过的信息 */
+    private static final int VAR_MSG = 3;
+    /** 局部变量:上下文 */
+    private static final int VAR_CONTEXT = 4;
+    /** 局部变量:值的字符串 */
+    private static final int VAR_STR = 5;
+    /** 局部变量:中英文长度 */
+    private static final int VAR_MIX = 6;
+    /** 局部变量:字节长度 */
+    private static final int VAR_BYTES = 7;
+
+    /** 比较方式:等于 */
+    private static final int CMP_EQ = 0;
+    /** 比较方式:最小 */
+    private static final int CMP_MIN = 1;
+    /** 比较方式:最大 */
+    private static final int CMP_MAX = 2;
+
+    /** 比较的长度:字符数 */
+    private static final int MEASURE_LENGTH = 0;
+    /** 比较的长度:中英文长度 */
+    private static final int MEASURE_MIX = 1;
+    /** 比较的长度:字节长度 */
+    private static final int MEASURE_BYTES = 2;
+
+    /** 校验计划 */
+    private final CheckPlan plan;
+
+    /** 生成类的内部名 */
+    private final String className;
+
+    /** 是否可以直接读取public属性 */
+    private final boolean directRead;
+
+    /** 常量池(属性名、有效值、正则、消息模板) */
+    private final List<Object> constants = Lists.newArrayList();
+
+    private CheckerGenerator(CheckPlan plan, boolean directRead) {
+        this.plan = plan;
+        this.directRead = directRead;
+        this.className = "com/wisea/cloud/common/datacheck/plan/DataChecker$$" + plan.getType().getSimpleName() + "$$" + SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * 生成校验器 生成失败时返回null
+     *
+     * @param plan
+     *            校验计划
+     * @return
+     */
+    static DataChecker generate(CheckPlan plan) {
+        try {
+            ClassLoader parent = plan.getType().getClassLoader();
+            // 生成的类需要同时能看到DataCheck和被校验的类，否则只能通过访问器读取属性
+            boolean directRead = isVisible(parent);
+            if (!directRead) {
+                parent = DataChecker.class.getClassLoader();
+            }
+            CheckerGenerator generator = new CheckerGenerator(plan, directRead);
+            byte[] bytes = generator.generateBytes();
+            Class<?> clazz = new CheckerClassLoader(parent).define(generator.className.replace('/', '.'), bytes);
+            List<FieldPlan> fields = plan.getCheckFields();
+            FieldAccessor[] accessors = new FieldAccessor[fields.size()];
+            for (int i = 0; i < accessors.length; i++) {
+                accessors[i] = fields.get(i).getAccessor();
+            }
+            return (DataChecker) clazz.getConstructor(FieldAccessor[].class, Object[].class).newInstance(accessors, generator.constants.toArray());
+        } catch (Throwable e) {
+            logger.warn("generate DataChecker for " + plan.getType().getName() + " failed, use reflect engine instead.", e);
+            return null;
+        }
+    }
+
+    private static boolean isVisible(ClassLoader loader) {
+        if (null == loader) {
+            return false;
+        }
+        try {
+            return DataChecker.class == Class.forName(DataChecker.class.getName(), false, loader);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private byte[] generateBytes() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // 生成的代码中不存在需要合并的引用类型，避免通过ClassLoader加载类
+                return OBJECT;
+            }
+        };
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, OBJECT, new String[] { CHECKER });
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "accessors", ACCESSOR_ARRAY, null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "constants", OBJECT_ARRAY, null, null).visitEnd();
+        generateConstructor(cw);
+        generateGetFieldNames(cw);
+        generateGetValue(cw);
+        List<FieldPlan> fields = plan.getCheckFields();
+        for (int i = 0; i < fields.size(); i++) {
+            generateCheckOne(cw, i, fields.get(i));
+        }
+        generateCheckField(cw, fields.size());
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateConstructor(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + ACCESSOR_ARRAY + OBJECT_ARRAY + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, className, "accessors", ACCESSOR_ARRAY);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitFieldInsn(PUTFIELD, className, "constants", OBJECT_ARRAY);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void generateGetFieldNames(ClassWriter cw) {
+        List<FieldPlan> fields = plan.getCheckFields();
+        String[] names = new String[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = fields.get(i).getName();
+        }
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getFieldNames", "()[Ljava/lang/String;", null, null);
+        mv.visitCode();
+        loadConstant(mv, names, String[].class);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * public属性直接getfield，有简单getter的属性直接调用getter，其他属性通过访问器读取
+     */
+    private void generateGetValue(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getValue", GET_VALUE_DESC, null, null);
+        mv.visitCode();
+        List<FieldPlan> fields = plan.getCheckFields();
+        Label byAccessor = new Label();
+        if (!fields.isEmpty()) {
+            Label[] labels = new Label[fields.size()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = isDirectReadable(fields.get(i).getField()) || null != simpleGetter(fields.get(i)) ? new Label() : byAccessor;
+            }
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitTableSwitchInsn(0, labels.length - 1, byAccessor, labels);
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == byAccessor) {
+                    continue;
+                }
+                Field field = fields.get(i).getField();
+                Type type = Type.getType(field.getType());
+                mv.visitLabel(labels[i]);
+                mv.visitVarInsn(ALOAD, 1);
+                Method getter = simpleGetter(fields.get(i));
+                if (null == getter) {
+                    String owner = Type.getInternalName(field.getDeclaringClass());
+                    mv.visitTypeInsn(CHECKCAST, owner);
+                    mv.visitFieldInsn(GETFIELD, owner, field.getName(), type.getDescriptor());
+                } else {
+                    // getter只读取该属性 与直接读取结果一致
+                    String owner = Type.getInternalName(plan.getType());
+                    mv.visitTypeInsn(CHECKCAST, owner);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, owner, getter.getName(), Type.getMethodDescriptor(getter), false);
+                }
+                box(mv, type);
+                mv.visitInsn(ARETURN);
+            }
+        }
+        mv.visitLabel(byAccessor);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, "accessors", ACCESSOR_ARRAY);
+        mv.visitVarInsn(ILOAD, 2);
+        mv.visitInsn(AALOAD);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, ACCESSOR, "get", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 可以直接调用的getter 访问器只为public类取得getter
+     */
+    private Method simpleGetter(FieldPlan fieldPlan) {
+        return directRead && !isDirectReadable(fieldPlan.getField()) ? fieldPlan.getAccessor().getSimpleGetter() : null;
+    }
+
+    private boolean isDirectReadable(Field field) {
+        int modifiers = field.getModifiers();
+        return directRead && Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && Modifier.isPublic(field.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * 根据下标分发到各属性的校验方法
+     */
+    private void generateCheckField(ClassWriter cw, int size) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "checkField", CHECK_FIELD_DESC, null, null);
+        mv.visitCode();
+        Label end = new Label();
+        if (size > 0) {
+            Label[] labels = new Label[size];
+            for (int i = 0; i < size; i++) {
+                labels[i] = new Label();
+            }
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitTableSwitchInsn(0, size - 1, end, labels);
+            for (int i = 0; i < size; i++) {
+                mv.visitLabel(labels[i]);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitVarInsn(ALOAD, 4);
+                mv.visitVarInsn(ALOAD, 5);
+                mv.visitMethodInsn(INVOKEVIRTUAL, className, "check" + i, CHECK_ONE_DESC, false);
+                mv.visitInsn(RETURN);
+            }
+        }
+        mv.visitLabel(end);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 生成一个属性的校验方法，与DataCheckUtil.checkRule的处理顺序一致
+     * <p/>
+     * 按编译后的CheckRule生成:规则编码、长度、区间、有效值集合、正则、字符集和消息模板都使用规则中已经处理好的，不再解析test。<br/>
+     * 值的字符串、中英文长度和字节长度在方法开头计算一次，不需要时存入null和0，每个局部变量在所有路径上都已赋值。
+     */
+    private void generateCheckOne(ClassWriter cw, int index, FieldPlan field) {
+        MethodVisitor mv = cw.visitMethod(ACC_PRIVATE, "check" + index, CHECK_ONE_DESC, null, null);
+        mv.visitCode();
+        String name = field.getName();
+        CheckRule rule = field.getRule();
+        // 长度校验和正则校验共用的字符串只计算一次
+        if (rule.needsString()) {
+            mv.visitVarInsn(ALOAD, VAR_VAL);
+            mv.visitMethodInsn(INVOKESTATIC, EMPTY, "toString", "(Ljava/lang/Object;)Ljava/lang/String;", false);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+        mv.visitVarInsn(ASTORE, VAR_STR);
+        // 中英文长度和字节长度也只计算一次
+        if (rule.hasMixLength()) {
+            mv.visitVarInsn(ALOAD, VAR_STR);
+            mv.visitMethodInsn(INVOKESTATIC, METRICS, "mixLength", "(Ljava/lang/CharSequence;)I", false);
+        } else {
+            mv.visitInsn(ICONST_0);
+        }
+        mv.visitVarInsn(ISTORE, VAR_MIX);
+        if (rule.hasByteLength()) {
+            mv.visitVarInsn(ALOAD, VAR_STR);
+            loadConstant(mv, rule.getCharset(), Charset.class);
+            mv.visitMethodInsn(INVOKESTATIC, METRICS, "byteLength", "(Ljava/lang/CharSequence;" + Type.getDescriptor(Charset.class) + ")I", false);
+        } else {
+            mv.visitInsn(ICONST_0);
+        }
+        mv.visitVarInsn(ISTORE, VAR_BYTES);
+        // 空值跳过时规则中只有REQUIRED
+        for (int t : rule.getTests()) {
+            switch (t) {
+            case CheckRule.REQUIRED:
+                Label notEmpty = new Label();
+                mv.visitVarInsn(ALOAD, VAR_VAL);
+                mv.visitMethodInsn(INVOKESTATIC, EMPTY, "isEmpty", "(Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(IFEQ, notEmpty);
+                addMsg(mv, CheckRule.REQUIRED, rule.getRequiredMsg(), name);
+                mv.visitLabel(notEmpty);
+                break;
+            case CheckRule.LENGTH:
+                lengthCheck(mv, rule, name, CMP_EQ, "标准");
+                break;
+            case CheckRule.MIN_LENGTH:
+                lengthCheck(mv, rule, name, CMP_MIN, "最小");
+                break;
+            case CheckRule.MAX_LENGTH:
+                lengthCheck(mv, rule, name, CMP_MAX, "最大");
+                break;
+            case CheckRule.LIVEABLE:
+                if (null != rule.getLiveables()) {
+                    Label liveable = new Label();
+                    mv.visitVarInsn(ALOAD, VAR_VAL);
+                    loadConstant(mv, rule.getLiveableSet(), LiveableSet.class);
+                    mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "isLiveable", "(Ljava/lang/Object;" + Type.getDescriptor(LiveableSet.class) + ")Z", false);
+                    mv.visitJumpInsn(IFNE, liveable);
+                    addMsg(mv, CheckRule.LIVEABLE, rule.getLiveableMsg(), name);
+                    mv.visitLabel(liveable);
+                }
+                break;
+            case CheckRule.REGEX:
+                String[] regs = rule.getRegex();
+                if (null != regs) {
+                    Pattern[] patterns = rule.getPatterns();
+                    if (null == patterns) {
+                        // 正则不正确 抛出异常后使用反射方式校验
+                        patterns = new Pattern[regs.length];
+                        for (int i = 0; i < regs.length; i++) {
+                            patterns[i] = PatternCache.get(regs[i]);
+                        }
+                    }
+                    Label matched = new Label();
+                    mv.visitVarInsn(ALOAD, VAR_STR);
+                    loadConstant(mv, patterns, Pattern[].class);
+                    mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "matchesString", "(Ljava/lang/String;[Ljava/util/regex/Pattern;)Z", false);
+                    mv.visitJumpInsn(IFNE, matched);
+                    addMsg(mv, CheckRule.REGEX, rule.getRegexMsg(), name);
+                    mv.visitLabel(matched);
+                }
+                break;
+            case CheckRule.LOGIC:
+                Label passed = new Label();
+                mv.visitLdcInsn(name);
+                if (null == rule.getLogic()) {
+                    mv.visitInsn(ACONST_NULL);
+                } else {
+                    mv.visitLdcInsn(rule.getLogic());
+                }
+                mv.visitVarInsn(ALOAD, VAR_CONTEXT);
+                mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(DataCheckUtil.class), "logicCheck",
+                        "(Ljava/lang/String;Ljava/lang/String;" + Type.getDescriptor(EvaluationContext.class) + ")Z", false);
+                mv.visitJumpInsn(IFNE, passed);
+                addMsg(mv, CheckRule.LOGIC, rule.getLogicMsg(), name);
+                mv.visitLabel(passed);
+                break;
+            default:
+                break;
+            }
+        }
+        // 多个lengthCheck
+        if (rule.isRange()) {
+            rangeCheck(mv, rule.getLengthRange(), rule.getLengthMsg(), name, MEASURE_LENGTH);
+            rangeCheck(mv, rule.getMixLengthRange(), rule.getLengthMsg(), name, MEASURE_MIX);
+            rangeCheck(mv, rule.getByteLengthRange(), rule.getLengthMsg(), name, MEASURE_BYTES);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void lengthCheck(MethodVisitor mv, CheckRule checkRule, String name, int cmp, String kind) {
+        int rule = CMP_MIN == cmp ? CheckRule.MIN_LENGTH : CMP_MAX == cmp ? CheckRule.MAX_LENGTH : CheckRule.LENGTH;
+        MessageTemplate template = checkRule.getLengthMsg();
+        if (checkRule.getLength() > 0) {
+            compareLength(mv, MEASURE_LENGTH, cmp, rule, checkRule.getLength(), template, name, kind);
+        }
+        if (checkRule.getMixLength() > 0) {
+            compareLength(mv, MEASURE_MIX, cmp, rule, checkRule.getMixLength(), template, name, kind);
+        }
+        if (checkRule.getByteLength() > 0) {
+            compareLength(mv, MEASURE_BYTES, cmp, rule, checkRule.getByteLength(), template, name, kind);
+        }
+    }
+
+    private void rangeCheck(MethodVisitor mv, int[] range, MessageTemplate template, String name, int measure) {
+        if (null != range) {
+            compareLength(mv, measure, CMP_MIN, CheckRule.MIN_LENGTH, range[0], template, name, "最小");
+            compareLength(mv, measure, CMP_MAX, CheckRule.MAX_LENGTH, range[1], template, name, "最大");
+        }
+    }
+
+    /**
+     * 长度比较，不满足时添加校验信息
+     */
+    private void compareLength(MethodVisitor mv, int measure, int cmp, int rule, int length, MessageTemplate template, String name, String kind) {
+        Label skip = new Label();
+        if (MEASURE_MIX == measure) {
+            mv.visitVarInsn(ILOAD, VAR_MIX);
+        } else if (MEASURE_BYTES == measure) {
+            mv.visitVarInsn(ILOAD, VAR_BYTES);
+        } else {
+            mv.visitVarInsn(ALOAD, VAR_STR);
+            mv.visitMethodInsn(INVOKEVIRTUAL, STRING, "length", "()I", false);
+        }
+        mv.visitLdcInsn(length);
+        switch (cmp) {
+        case CMP_MIN:
+            mv.visitJumpInsn(IF_ICMPGE, skip);
+            break;
+        case CMP_MAX:
+            mv.visitJumpInsn(IF_ICMPLE, skip);
+            break;
+        default:
+            mv.visitJumpInsn(IF_ICMPEQ, skip);
+            break;
+        }
+        loadViolationArgs(mv, rule, template, name);
+        mv.visitLdcInsn(kind);
+        mv.visitLdcInsn(length);
+        mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "addLengthViolation", "(L" + LIST + ";" + PATH + "IL" + OBJECT + ";" + TEMPLATE + "L" + STRING + ";L" + STRING + ";I)V",
+                false);
+        mv.visitLabel(skip);
+    }
+
+    private void addMsg(MethodVisitor mv, int rule, MessageTemplate template, String name) {
+        loadViolationArgs(mv, rule, template, name);
+        mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "addViolation", "(L" + LIST + ";" + PATH + "IL" + OBJECT + ";" + TEMPLATE + "L" + STRING + ";)V", false);
+    }
+
+    /**
+     * 校验信息的公共参数:violations, path, rule, val, template, feildName
+     */
+    private void loadViolationArgs(MethodVisitor mv, int rule, MessageTemplate template, String name) {
+        mv.visitVarInsn(ALOAD, VAR_MSG);
+        mv.visitVarInsn(ALOAD, VAR_PATH);
+        mv.visitLdcInsn(rule);
+        mv.visitVarInsn(ALOAD, VAR_VAL);
+        loadConstant(mv, template, MessageTemplate.class);
+        mv.visitLdcInsn(name);
+    }
+
+    private void loadConstant(MethodVisitor mv, Object value, Class<?> type) {
+        int index = constants.size();
+        constants.add(value);
+        mv.visitVarInsn(ALOAD, VAR_THIS);
+        mv.visitFieldInsn(GETFIELD, className, "constants", OBJECT_ARRAY);
+        mv.visitLdcInsn(index);
+        mv.visitInsn(AALOAD);
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Class<?> boxed;
+        switch (type.getSort()) {
+        case Type.BOOLEAN:
+            boxed = Boolean.class;
+            break;
+        case Type.CHAR:
+            boxed = Character.class;
+            break;
+        case Type.BYTE:
+            boxed = Byte.class;
+            break;
+        case Type.SHORT:
+            boxed = Short.class;
+            break;
+        case Type.INT:
+            boxed = Integer.class;
+            break;
+        case Type.FLOAT:
+            boxed = Float.class;
+            break;
+        case Type.LONG:
+            boxed = Long.class;
+            break;
+        case Type.DOUBLE:
+            boxed = Double.class;
+            break;
+        default:
+            return;
+        }
+        String owner = Type.getInternalName(boxed);
+        mv.visitMethodInsn(INVOKESTATIC, owner, "valueOf", "(" + type.getDescriptor() + ")L" + owner + ";", false);
+    }
+
+    /**
+     * 生成类专用的ClassLoader 每个生成类一个，便于随被校验的类一起卸载
+     */
+    private static final class CheckerClassLoader extends ClassLoader {
+        CheckerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.util.List;
+
+import org.springframework.expression.EvaluationContext;
+
+import com.wisea.cloud.common.datacheck.entity.CheckViolation;
+import com.wisea.cloud.common.datacheck.entity.PathNode;
+
+/**
+ * 生成的校验器
+ * <p/>
+ * 每个校验器对应一个Class，index为该属性在CheckPlan.getCheckFields()中的下标。<br/>
+ * 级联、List属性以及上下文的维护仍由DataCheckUtil负责，校验器只负责读取属性和执行单个属性的校验规则。<br/>
+ * 编译时生成的校验器类名为被校验类的类名+DataChecker，例如UserPo的校验器为UserPoDataChecker。
+ */
+public interface DataChecker {
+    /** 编译时生成的校验器类名后缀 */
+    String CLASS_SUFFIX = "DataChecker";
+
+    /**
+     * 校验属性名 顺序必须与CheckPlan.getCheckFields()一致
+     * 
+     * @return
+     */
+    String[] getFieldNames();
+
+    /**
+     * 读取校验属性的值
+     * 
+     * @param bean
+     *            实体
+     * @param index
+     *            属性下标
+     * @return
+     */
+    Object getValue(Object bean, int index);
+
+    /**
+     * 校验一个属性，校验不通过的信息添加到violations中
+     * 
+     * @param index
+     *            属性下标
+     * @param val
+     *            值
+     * @param path
+     *            所在对象的路径 最外层为null
+     * @param violations
+     *            校验不通过的信息
+     * @param context
+     *            logic校验的上下文
+     */
+    void checkField(int index, Object val, PathNode path, List<CheckViolation> violations, EvaluationContext context);
+}
@@ -0,0 +1,81 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.lang.reflect.Field;
+
+import com.wisea.cloud.common.datacheck.annotation.Check;
+import com.wisea.cloud.common.datacheck.util.FieldAccessor;
+
+/**
+ * 属性校验计划
+ * <p/>
+ * 保存一个属性在校验时需要的全部元数据，在构建CheckPlan时一次性解析完成。
+ */
+public final class FieldPlan {
+    /** 属性名 */
+    private final String name;
+
+    /** 属性访问器 */
+    private final FieldAccessor accessor;
+
+    /** Check注解 没有声明时为null */
+    private final Check check;
+
+    /** 编译后的校验规则 没有声明Check时为null */
+    private final CheckRule rule;
+
+    FieldPlan(FieldAccessor accessor) {
+        this.name = accessor.getName();
+        this.accessor = accessor;
+        this.check = accessor.getField().getDeclaredAnnotation(Check.class);
+        this.rule = CheckRule.cached(check);
+    }
+
+    /**
+     * 取得属性的值
+     * 
+     * @param bean
+     *            实体
+     * @return
+     */
+    public Object getValue(Object bean) {
+        return accessor.get(bean);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Field getField() {
+        return accessor.getField();
+    }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    public Check getCheck() {
+        return check;
+    }
+
+    public CheckRule getRule() {
+        return rule;
+    }
+
+    /**
+     * 是否需要逻辑校验
+     * 
+     * @return
+     */
+    public boolean hasLogic() {
+        return null != rule && rule.hasLogic();
+    }
+
+    /**
+     * 是否声明了Check注解
+     * 
+     * @return
+     */
+    public boolean isChecked() {
+        return null != check;
+    }
+}
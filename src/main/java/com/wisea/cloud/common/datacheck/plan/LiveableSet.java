@@ -0,0 +1,163 @@
+package com.wisea.cloud.common.datacheck.plan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.wisea.cloud.common.datacheck.util.ConverterUtil;
+
+/**
+ * 有效值集合
+ * <p/>
+ * 在编译校验规则时由liveable一次性构建，不可修改。字符串按哈希查找，<br/>
+ * Integer、Long、Short、Byte按数值在排好序的long数组中二分查找，Boolean和枚举的结果提前算好，这些类型不再转换成字符串。<br/>
+ * 判断结果与逐个比较ConverterUtil.toString(val)和有效值完全一致。
+ */
+public final class LiveableSet {
+    /** 有效值 */
+    private final String[] values;
+
+    /** 有效值的哈希集合 */
+    private final Set<String> strings;
+
+    /** 整数形式的有效值(与Long.toString的结果相同的有效值) 升序 */
+    private final long[] numbers;
+
+    /** true是否有效 */
+    private final boolean trueLive;
+
+    /** false是否有效 */
+    private final boolean falseLive;
+
+    /** 每个枚举类的常量是否有效 按ordinal */
+    private final Map<Class<?>, boolean[]> enums = new ConcurrentHashMap<>();
+
+    private LiveableSet(String[] values) {
+        this.values = values.clone();
+        Set<String> set = new HashSet<>(Arrays.asList(values));
+        this.strings = Collections.unmodifiableSet(set);
+        long[] nums = new long[values.length];
+        int count = 0;
+        for (String value : set) {
+            Long number = parseCanonicalLong(value);
+            if (null != number) {
+                nums[count++] = number;
+            }
+        }
+        this.numbers = Arrays.copyOf(nums, count);
+        Arrays.sort(this.numbers);
+        this.trueLive = set.contains("true");
+        this.falseLive = set.contains("false");
+    }
+
+    /**
+     * 构建有效值集合
+     *
+     * @param values
+     *            有效值
+     * @return values为空时返回null
+     */
+    public static LiveableSet of(String[] values) {
+        return null == values || values.length == 0 ? null : new LiveableSet(values);
+    }
+
+    /**
+     * 转换成十进制字符串后与原字符串相同时返回数值
+     * <p/>
+     * 只接受可选的负号和不以0开头的数字(0本身除外)，逐位计算，溢出时返回null，不使用异常。
+     */
+    private static Long parseCanonicalLong(String value) {
+        if (null == value) {
+            return null;
+        }
+        int len = value.length();
+        boolean negative = len > 0 && value.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        if (start == len || len - start > 19) {
+            return null;
+        }
+        if (value.charAt(start) == '0') {
+            // "0"以外以0开头的和"-0"不是Long.toString的结果
+            return len == 1 ? 0L : null;
+        }
+        // 按负数累加 Long.MIN_VALUE的绝对值超出long的范围
+        long result = 0;
+        for (int i = start; i < len; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                return null;
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                return null;
+            }
+            result = -result;
+        }
+        return result;
+    }
+
+    /**
+     * 值是否有效
+     *
+     * @param val
+     *            值
+     * @return 为空时返回false
+     */
+    public boolean contains(Object val) {
+        if (null == val) {
+            return false;
+        }
+        if (val instanceof String) {
+            // 空字符串与null一样无效
+            return !((String) val).isEmpty() && strings.contains(val);
+        }
+        // 整数的字符串形式一定是十进制，直接比较数值
+        if (val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte) {
+            return Arrays.binarySearch(numbers, ((Number) val).longValue()) >= 0;
+        }
+        if (val instanceof Boolean) {
+            return (Boolean) val ? trueLive : falseLive;
+        }
+        if (val instanceof Enum) {
+            return containsEnum((Enum<?>) val);
+        }
+        // 其他类型转换一次字符串
+        String str = ConverterUtil.toString(val);
+        return null != str && strings.contains(str);
+    }
+
+    private boolean containsEnum(Enum<?> val) {
+        Class<?> type = val.getDeclaringClass();
+        boolean[] lives = enums.get(type);
+        if (null == lives) {
+            Object[] constants = type.getEnumConstants();
+            lives = new boolean[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                lives[i] = strings.contains(String.valueOf(constants[i]));
+            }
+            enums.put(type, lives);
+        }
+        return lives[val.ordinal()];
+    }
+
+    /**
+     * 取得有效值
+     *
+     * @return 副本
+     */
+    public String[] getValues() {
+        return values.clone();
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
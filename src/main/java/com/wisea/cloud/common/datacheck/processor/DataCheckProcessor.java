@@ -0,0 +1,403 @@
+package com.wisea.cloud.common.datacheck.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import com.wisea.cloud.common.datacheck.annotation.Check;
+import com.wisea.cloud.common.datacheck.plan.CheckRule;
+import com.wisea.cloud.common.datacheck.plan.DataChecker;
+import com.wisea.cloud.common.datacheck.util.MessageTemplate;
+
+/**
+ * DataChecker编译时生成器
+ * <p/>
+ * 为每个声明了@Check属性的类生成一个同包的"类名+DataChecker"校验器，可访问的属性直接读取，其他属性通过FieldAccessor读取，正则在类加载时预编译。<br/>
+ * 校验方法按编译后的CheckRule生成，与运行时使用同一个规则。<br/>
+ * 运行时CheckPlan会自动发现并优先使用生成的校验器，省去反射和首次校验的预热。<br/>
+ * 该处理器注册在META-INF/services中，使用方编译时自动运行；不需要时可以通过javac -proc:none或maven-compiler-plugin的proc=none关闭。
+ */
+@SupportedAnnotationTypes("com.wisea.cloud.common.datacheck.annotation.Check")
+public class DataCheckProcessor extends AbstractProcessor {
+    private static final String LIST = "java.util.List<com.wisea.cloud.common.datacheck.entity.CheckViolation>";
+    private static final String PATH = "com.wisea.cloud.common.datacheck.entity.PathNode";
+    private static final String RULE = "com.wisea.cloud.common.datacheck.plan.CheckRule";
+    private static final String CONTEXT = "org.springframework.expression.EvaluationContext";
+    private static final String SUPPORT = "com.wisea.cloud.common.datacheck.plan.CheckSupport";
+    private static final String LIVEABLE_SET = "com.wisea.cloud.common.datacheck.plan.LiveableSet";
+    private static final String EMPTY = "com.wisea.cloud.common.datacheck.util.EmptyChecker";
+    private static final String METRICS = "com.wisea.cloud.common.datacheck.util.StringMetrics";
+    private static final String TEMPLATE = "com.wisea.cloud.common.datacheck.util.MessageTemplate";
+    private static final String CHECK_UTIL = "com.wisea.cloud.common.datacheck.util.DataCheckUtil";
+    private static final String ACCESSOR = "com.wisea.cloud.common.datacheck.util.FieldAccessor";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Check.class)) {
+            if (element.getKind() == ElementKind.FIELD && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement type : types) {
+            if (!isAccessible(type)) {
+                processingEnv.getMessager().printMessage(Kind.NOTE, "skip DataChecker for inaccessible class", type);
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (PatternSyntaxException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "skip DataChecker because of invalid regex: " + e.getPattern(), type);
+            } catch (IllegalCharsetNameException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "skip DataChecker because of invalid charset: " + e.getCharsetName(), type);
+            } catch (UnsupportedCharsetException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "skip DataChecker because of unsupported charset: " + e.getCharsetName(), type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Kind.WARNING, "generate DataChecker failed: " + e.getMessage(), type);
+            }
+        }
+        // 不独占@Check 其他处理器仍然可以处理
+        return false;
+    }
+
+    /**
+     * 生成的类与被校验的类同包，被校验的类及其外部类都不能是private或局部类
+     */
+    private boolean isAccessible(TypeElement type) {
+        Element current = type;
+        while (current instanceof TypeElement) {
+            TypeElement typeElement = (TypeElement) current;
+            if (typeElement.getModifiers().contains(Modifier.PRIVATE) || typeElement.getNestingKind() == NestingKind.LOCAL
+                    || typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String pkgName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (pkgName.isEmpty() ? binaryName : binaryName.substring(pkgName.length() + 1)) + DataChecker.CLASS_SUFFIX;
+        String typeName = rawName(type);
+
+        // 与ConverterUtil.getAllFields的顺序一致:先子类后父类
+        List<VariableElement> allFields = new ArrayList<>();
+        List<VariableElement> fields = new ArrayList<>();
+        TypeElement current = type;
+        while (null != current) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                allFields.add(field);
+                if (null != field.getAnnotation(Check.class)) {
+                    fields.add(field);
+                }
+            }
+            TypeMirror superType = current.getSuperclass();
+            current = superType.getKind() == TypeKind.DECLARED ? (TypeElement) processingEnv.getTypeUtils().asElement(superType) : null;
+        }
+
+        StringBuilder constants = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        StringBuilder names = new StringBuilder();
+        StringBuilder getValue = new StringBuilder();
+        StringBuilder checkField = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+            String name = field.getSimpleName().toString();
+            names.append(i == 0 ? "" : ", ").append(literal(name));
+            getValue.append("        case ").append(i).append(":\n");
+            getValue.append("            return ").append(readExpression(type, pkg, field, allFields, i, constants)).append(";\n");
+            checkField.append("        case ").append(i).append(":\n");
+            checkField.append("            check").append(i).append("(val, path, violations, context);\n");
+            checkField.append("            break;\n");
+            // 与运行时使用同一个编译后的规则 字符集不支持时抛出异常
+            writeCheckMethod(methods, constants, i, name, CheckRule.of(field.getAnnotation(Check.class)));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (!pkgName.isEmpty()) {
+            sb.append("package ").append(pkgName).append(";\n\n");
+        }
+        sb.append("/**\n * ").append(typeName).append("的校验器\n * <p/>\n * 由DataCheckProcessor生成，请勿修改\n */\n");
+        sb.append("@SuppressWarnings(\"all\")\n");
+        sb.append("public final class ").append(simpleName).append(" implements ").append(DataChecker.class.getName()).append(" {\n");
+        sb.append("    private static final String[] FIELD_NAMES = { ").append(names).append(" };\n");
+        sb.append(constants).append("\n");
+        sb.append("    @Override\n");
+        sb.append("    public String[] getFieldNames() {\n");
+        sb.append("        return FIELD_NAMES;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public Object getValue(Object bean, int index) {\n");
+        sb.append("        switch (index) {\n").append(getValue);
+        sb.append("        default:\n");
+        sb.append("            throw new IndexOutOfBoundsException(String.valueOf(index));\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public void checkField(int index, Object val, ").append(PATH).append(" path, ").append(LIST).append(" violations, ").append(CONTEXT)
+                .append(" context) {\n");
+        sb.append("        switch (index) {\n").append(checkField);
+        sb.append("        default:\n");
+        sb.append("            break;\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+        sb.append(methods);
+        sb.append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(pkgName.isEmpty() ? simpleName : pkgName + "." + simpleName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    /**
+     * 读取属性值的表达式:可访问的属性直接读取，否则使用FieldAccessor
+     * <p/>
+     * 编译时无法确认getter是否只返回该属性，所以不调用getter。FieldAccessor只在getter的方法体只是读取该属性时调用getter，<br/>
+     * 读取的结果与反射方式一致。
+     */
+    private String readExpression(TypeElement type, PackageElement pkg, VariableElement field, List<VariableElement> allFields, int index, StringBuilder constants) {
+        TypeElement declaring = (TypeElement) field.getEnclosingElement();
+        boolean declaringAccessible = isVisible(declaring, pkg);
+        if (!field.getModifiers().contains(Modifier.STATIC) && declaringAccessible && isVisible(field, pkg)) {
+            return "((" + rawName(declaring) + ") bean)." + field.getSimpleName();
+        }
+        // 生成的访问类只用于被校验类本身的实例，属性被子类同名属性隐藏时使用声明类的访问器
+        String owner = declaringAccessible && isHidden(field, allFields) ? rawName(declaring) : rawName(type);
+        constants.append("    private static final ").append(ACCESSOR).append(" ACCESSOR_").append(index).append(" = ").append(ACCESSOR).append(".forField(").append(owner)
+                .append(".class, ").append(literal(field.getSimpleName().toString())).append(");\n");
+        return "ACCESSOR_" + index + ".get(bean)";
+    }
+
+    /**
+     * 属性是否与其他属性同名
+     */
+    private static boolean isHidden(VariableElement field, List<VariableElement> allFields) {
+        for (VariableElement other : allFields) {
+            if (other != field && other.getSimpleName().contentEquals(field.getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成一个属性的校验方法，与DataCheckUtil.checkRule的处理顺序一致
+     * <p/>
+     * 按编译后的CheckRule生成，与反射方式和运行时生成的校验器使用同一个规则，不再解析test。<br/>
+     * str、mix、bytes在方法开头声明并赋值，不需要时为null和0。
+     */
+    private void writeCheckMethod(StringBuilder sb, StringBuilder constants, int index, String name, CheckRule rule) {
+        sb.append("\n    private void check").append(index).append("(Object val, ").append(PATH).append(" path, ").append(LIST).append(" violations, ").append(CONTEXT)
+                .append(" context) {\n");
+        // 长度校验和正则校验共用的字符串、中英文长度和字节长度只计算一次
+        sb.append("        String str = ").append(rule.needsString() ? EMPTY + ".toString(val)" : "null").append(";\n");
+        sb.append("        int mix = ").append(rule.hasMixLength() ? METRICS + ".mixLength(str)" : "0").append(";\n");
+        String bytes = "0";
+        if (rule.hasByteLength()) {
+            String constant = "CHARSET_" + index;
+            constants.append("    private static final java.nio.charset.Charset ").append(constant).append(" = java.nio.charset.Charset.forName(")
+                    .append(literal(rule.getCharset().name())).append(");\n");
+            bytes = METRICS + ".byteLength(str, " + constant + ")";
+        }
+        sb.append("        int bytes = ").append(bytes).append(";\n");
+        String field = literal(name);
+        // 长度类校验共用一个消息模板
+        String lengthMsg = null == rule.getLengthMsg() ? null : templateConstant(constants, "LENGTH", index, rule.getLengthMsg());
+        // 空值跳过时规则中只有REQUIRED
+        for (int t : rule.getTests()) {
+            switch (t) {
+            case CheckRule.REQUIRED:
+                sb.append("        if (").append(EMPTY).append(".isEmpty(val)) {\n");
+                addMsg(sb, "REQUIRED", templateConstant(constants, "REQUIRED", index, rule.getRequiredMsg()), field);
+                sb.append("        }\n");
+                break;
+            case CheckRule.LENGTH:
+                lengthCheck(sb, rule, lengthMsg, field, "!=", "LENGTH", "标准");
+                break;
+            case CheckRule.MIN_LENGTH:
+                lengthCheck(sb, rule, lengthMsg, field, "<", "MIN_LENGTH", "最小");
+                break;
+            case CheckRule.MAX_LENGTH:
+                lengthCheck(sb, rule, lengthMsg, field, ">", "MAX_LENGTH", "最大");
+                break;
+            case CheckRule.LIVEABLE:
+                String[] liveables = rule.getLiveables();
+                if (null != liveables) {
+                    String constant = "LIVEABLE_" + index;
+                    if (constants.indexOf(" " + constant + " ") < 0) {
+                        constants.append("    private static final ").append(LIVEABLE_SET).append(" ").append(constant).append(" = ").append(LIVEABLE_SET).append(".of(new String[] { ");
+                        for (int i = 0; i < liveables.length; i++) {
+                            constants.append(i == 0 ? "" : ", ").append(literal(liveables[i]));
+                        }
+                        constants.append(" });\n");
+                    }
+                    sb.append("        if (!").append(SUPPORT).append(".isLiveable(val, ").append(constant).append(")) {\n");
+                    addMsg(sb, "LIVEABLE", templateConstant(constants, "LIVEABLE", index, rule.getLiveableMsg()), field);
+                    sb.append("        }\n");
+                }
+                break;
+            case CheckRule.REGEX:
+                String[] regs = rule.getRegex();
+                if (null != regs) {
+                    String constant = "PATTERN_" + index;
+                    if (constants.indexOf(" " + constant + " ") < 0) {
+                        constants.append("    private static final java.util.regex.Pattern[] ").append(constant).append(" = { ");
+                        for (int i = 0; i < regs.length; i++) {
+                            // 编译时检查正则 CheckRule中不正确的正则为null
+                            Pattern.compile(regs[i]);
+                            constants.append(i == 0 ? "" : ", ").append("java.util.regex.Pattern.compile(").append(literal(regs[i])).append(")");
+                        }
+                        constants.append(" };\n");
+                    }
+                    sb.append("        if (!").append(SUPPORT).append(".matchesString(str, ").append(constant).append(")) {\n");
+                    addMsg(sb, "REGEX", templateConstant(constants, "REGEX", index, rule.getRegexMsg()), field);
+                    sb.append("        }\n");
+                }
+                break;
+            case CheckRule.LOGIC:
+                sb.append("        if (!").append(CHECK_UTIL).append(".logicCheck(").append(field).append(", ").append(literal(rule.getLogic())).append(", context)) {\n");
+                addMsg(sb, "LOGIC", templateConstant(constants, "LOGIC", index, rule.getLogicMsg()), field);
+                sb.append("        }\n");
+                break;
+            default:
+                break;
+            }
+        }
+        // 多个lengthCheck
+        if (rule.isRange()) {
+            rangeCheck(sb, rule.getLengthRange(), lengthMsg, field, "str.length()");
+            rangeCheck(sb, rule.getMixLengthRange(), lengthMsg, field, "mix");
+            rangeCheck(sb, rule.getByteLengthRange(), lengthMsg, field, "bytes");
+        }
+        sb.append("    }\n");
+    }
+
+    private void lengthCheck(StringBuilder sb, CheckRule rule, String template, String field, String operator, String ruleName, String kind) {
+        if (rule.getLength() > 0) {
+            compareLength(sb, "str.length()", operator, ruleName, rule.getLength(), template, field, kind);
+        }
+        if (rule.getMixLength() > 0) {
+            compareLength(sb, "mix", operator, ruleName, rule.getMixLength(), template, field, kind);
+        }
+        if (rule.getByteLength() > 0) {
+            compareLength(sb, "bytes", operator, ruleName, rule.getByteLength(), template, field, kind);
+        }
+    }
+
+    private void rangeCheck(StringBuilder sb, int[] range, String template, String field, String measure) {
+        if (null != range) {
+            compareLength(sb, measure, "<", "MIN_LENGTH", range[0], template, field, "最小");
+            compareLength(sb, measure, ">", "MAX_LENGTH", range[1], template, field, "最大");
+        }
+    }
+
+    private void compareLength(StringBuilder sb, String measure, String operator, String rule, int length, String template, String field, String kind) {
+        sb.append("        if (").append(measure).append(" ").append(operator).append(" ").append(length).append(") {\n");
+        sb.append("            ").append(SUPPORT).append(".addLengthViolation(violations, path, ").append(RULE).append(".").append(rule).append(", val, ")
+                .append(template).append(", ").append(field).append(", ").append(literal(kind)).append(", ").append(length).append(");\n");
+        sb.append("        }\n");
+    }
+
+    private void addMsg(StringBuilder sb, String rule, String template, String field) {
+        sb.append("            ").append(SUPPORT).append(".addViolation(violations, path, ").append(RULE).append(".").append(rule).append(", val, ")
+                .append(template).append(", ").append(field).append(");\n");
+    }
+
+    /**
+     * 声明编译后的消息模板常量 每个属性的每种消息只声明一次
+     *
+     * @return 常量名
+     */
+    private static String templateConstant(StringBuilder constants, String kind, int index, MessageTemplate template) {
+        String constant = kind + "_MSG_" + index;
+        if (constants.indexOf(" " + constant + " ") < 0) {
+            constants.append("    private static final ").append(TEMPLATE).append(" ").append(constant).append(" = ").append(TEMPLATE).append(".of(")
+                    .append(literal(template.getPattern())).append(");\n");
+        }
+        return constant;
+    }
+
+    /**
+     * 元素在生成类所在的包中是否可以访问
+     */
+    private boolean isVisible(Element element, PackageElement pkg) {
+        if (element.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return processingEnv.getElementUtils().getPackageOf(element).equals(pkg);
+    }
+
+    private String rawName(TypeElement type) {
+        return processingEnv.getTypeUtils().erasure(type.asType()).toString();
+    }
+
+    /**
+     * 转换成Java字符串字面量，非ASCII字符转成unicode转义
+     */
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20 || c > 0x7e) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,574 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Handle;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * 属性访问类生成器
+ * <p/>
+ * 为一个实体类生成BeanAccess的子类，定义在实体类的ClassLoader的子ClassLoader中(与CheckerGenerator相同)。<br/>
+ * public类的public属性直接getfield/putfield；其他属性如果有public的getter/setter，并且方法体只是读写该属性，<br/>
+ * 则调用getter/setter(方法体通过读取class文件确认，结果与直接读写属性一致)。都不满足的属性不生成，由FieldAccessor使用MethodHandle读写。
+ */
+final class AccessorGenerator implements Opcodes {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(AccessorGenerator.class);
+
+    /** 生成类的序号 */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String BASE = Type.getInternalName(BeanAccess.class);
+    private static final String GET_DESC = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+    private static final String SET_DESC = "(Ljava/lang/Object;ILjava/lang/Object;)V";
+
+    /** 实体类 */
+    private final Class<?> type;
+
+    /** 属性 下标与BeanAccess的index一致 */
+    private final List<Field> fields;
+
+    /** 读取方式 Field为直接读取，Method为getter，null为不能生成 */
+    private final Member[] readers;
+
+    /** 写入方式 Field为直接写入，Method为setter，null为不能生成 */
+    private final Member[] writers;
+
+    /** 已经读取的class文件中的简单getter/setter */
+    private final Map<Class<?>, SimpleMethods> simpleMethods = Maps.newHashMap();
+
+    /** 生成类的内部名 */
+    private final String className;
+
+    private AccessorGenerator(Class<?> type, List<Field> fields) {
+        this.type = type;
+        this.fields = fields;
+        this.readers = new Member[fields.size()];
+        this.writers = new Member[fields.size()];
+        this.className = "com/wisea/cloud/common/datacheck/util/BeanAccess$$" + type.getSimpleName() + "$$" + SEQUENCE.incrementAndGet();
+        if (isVisible(type.getClassLoader())) {
+            for (int i = 0; i < readers.length; i++) {
+                Field field = fields.get(i);
+                if (!Modifier.isStatic(field.getModifiers()) && isAccessible(field.getType())) {
+                    readers[i] = reader(field);
+                    writers[i] = writer(field);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分析实体类的属性 取得可以生成的属性
+     *
+     * @param type
+     *            实体类
+     * @param fields
+     *            属性
+     * @return
+     */
+    static AccessorGenerator of(Class<?> type, List<Field> fields) {
+        return new AccessorGenerator(type, fields);
+    }
+
+    /**
+     * 属性是否可以通过生成的类读取
+     *
+     * @param index
+     *            属性下标
+     * @return
+     */
+    boolean isReadable(int index) {
+        return null != readers[index];
+    }
+
+    /**
+     * 属性是否可以通过生成的类写入
+     *
+     * @param index
+     *            属性下标
+     * @return
+     */
+    boolean isWritable(int index) {
+        return null != writers[index];
+    }
+
+    /**
+     * 读取属性时调用的getter
+     *
+     * @param index
+     *            属性下标
+     * @return 直接读取属性或不能生成时返回null
+     */
+    Method getGetter(int index) {
+        return readers[index] instanceof Method ? (Method) readers[index] : null;
+    }
+
+    /**
+     * 生成属性访问类
+     *
+     * @return 没有可以生成的属性或生成失败时返回null
+     */
+    BeanAccess generate() {
+        boolean any = false;
+        for (int i = 0; i < readers.length; i++) {
+            any |= isReadable(i) || isWritable(i);
+        }
+        if (!any) {
+            return null;
+        }
+        try {
+            byte[] bytes = generateBytes();
+            Class<?> clazz = new AccessorClassLoader(type.getClassLoader()).define(className.replace('/', '.'), bytes);
+            return (BeanAccess) clazz.getConstructor().newInstance();
+        } catch (Throwable e) {
+            logger.warn("generate BeanAccess for " + type.getName() + " failed, use MethodHandle instead.", e);
+            return null;
+        }
+    }
+
+    private static boolean isVisible(ClassLoader loader) {
+        if (null == loader) {
+            return false;
+        }
+        try {
+            return BeanAccess.class == Class.forName(BeanAccess.class.getName(), false, loader);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成的类中能否使用该类型(checkcast) 数组按元素类型判断
+     */
+    private static boolean isAccessible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        return clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers());
+    }
+
+    private Member reader(Field field) {
+        if (isDirect(field)) {
+            return field;
+        }
+        String suffix = capitalize(field.getName());
+        Method getter = null;
+        if (boolean.class == field.getType()) {
+            getter = simpleMethod(field, "is" + suffix, true);
+        }
+        return null != getter ? getter : simpleMethod(field, "get" + suffix, true);
+    }
+
+    private Member writer(Field field) {
+        if (isDirect(field)) {
+            return Modifier.isFinal(field.getModifiers()) ? null : field;
+        }
+        return simpleMethod(field, "set" + capitalize(field.getName()), false);
+    }
+
+    private static boolean isDirect(Field field) {
+        return Modifier.isPublic(field.getModifiers()) && Modifier.isPublic(field.getDeclaringClass().getModifiers());
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * 取得只读写该属性的public getter/setter
+     *
+     * @param field
+     *            属性
+     * @param name
+     *            方法名
+     * @param getter
+     *            true:getter false:setter
+     * @return 没有时返回null
+     */
+    private Method simpleMethod(Field field, String name, boolean getter) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        Method method;
+        try {
+            method = getter ? type.getMethod(name) : type.getMethod(name, field.getType());
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+        // 子类重写的方法可能不是简单的getter/setter
+        if (method.getDeclaringClass() != field.getDeclaringClass() || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        if (getter ? field.getType() != method.getReturnType() : void.class != method.getReturnType()) {
+            return null;
+        }
+        SimpleMethods methods = simpleMethods.get(field.getDeclaringClass());
+        if (null == methods) {
+            methods = SimpleMethods.read(field.getDeclaringClass());
+            simpleMethods.put(field.getDeclaringClass(), methods);
+        }
+        Map<String, String> found = getter ? methods.getters : methods.setters;
+        return field.getName().equals(found.get(name + Type.getMethodDescriptor(method))) ? method : null;
+    }
+
+    private byte[] generateBytes() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // 生成的代码中不存在需要合并的引用类型，避免通过ClassLoader加载类
+                return OBJECT;
+            }
+        };
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, BASE, null);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, BASE, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        generateGet(cw);
+        generateSet(cw);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 按下标读取属性 不能生成的下标抛出IllegalArgumentException
+     */
+    private void generateGet(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "get", GET_DESC, null, null);
+        mv.visitCode();
+        Label unsupported = new Label();
+        Label[] labels = labels(readers, unsupported);
+        mv.visitVarInsn(ILOAD, 2);
+        mv.visitTableSwitchInsn(0, labels.length - 1, unsupported, labels);
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == unsupported) {
+                continue;
+            }
+            Type fieldType = Type.getType(fields.get(i).getType());
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 1);
+            if (readers[i] instanceof Field) {
+                Field field = (Field) readers[i];
+                String owner = Type.getInternalName(field.getDeclaringClass());
+                mv.visitTypeInsn(CHECKCAST, owner);
+                mv.visitFieldInsn(GETFIELD, owner, field.getName(), fieldType.getDescriptor());
+            } else {
+                Method method = (Method) readers[i];
+                String owner = Type.getInternalName(type);
+                mv.visitTypeInsn(CHECKCAST, owner);
+                mv.visitMethodInsn(INVOKEVIRTUAL, owner, method.getName(), Type.getMethodDescriptor(method), false);
+            }
+            box(mv, fieldType);
+            mv.visitInsn(ARETURN);
+        }
+        throwUnsupported(mv, unsupported);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 按下标写入属性 不能生成的下标抛出IllegalArgumentException
+     */
+    private void generateSet(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "set", SET_DESC, null, null);
+        mv.visitCode();
+        Label unsupported = new Label();
+        Label[] labels = labels(writers, unsupported);
+        mv.visitVarInsn(ILOAD, 2);
+        mv.visitTableSwitchInsn(0, labels.length - 1, unsupported, labels);
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == unsupported) {
+                continue;
+            }
+            Type fieldType = Type.getType(fields.get(i).getType());
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 1);
+            if (writers[i] instanceof Field) {
+                Field field = (Field) writers[i];
+                String owner = Type.getInternalName(field.getDeclaringClass());
+                mv.visitTypeInsn(CHECKCAST, owner);
+                mv.visitVarInsn(ALOAD, 3);
+                unbox(mv, fieldType);
+                mv.visitFieldInsn(PUTFIELD, owner, field.getName(), fieldType.getDescriptor());
+            } else {
+                Method method = (Method) writers[i];
+                String owner = Type.getInternalName(type);
+                mv.visitTypeInsn(CHECKCAST, owner);
+                mv.visitVarInsn(ALOAD, 3);
+                unbox(mv, fieldType);
+                mv.visitMethodInsn(INVOKEVIRTUAL, owner, method.getName(), Type.getMethodDescriptor(method), false);
+            }
+            mv.visitInsn(RETURN);
+        }
+        throwUnsupported(mv, unsupported);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static Label[] labels(Member[] members, Label unsupported) {
+        // 没有属性时也生成一个分支，tableswitch至少需要一个标签
+        Label[] labels = new Label[Math.max(1, members.length)];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i < members.length && null != members[i] ? new Label() : unsupported;
+        }
+        return labels;
+    }
+
+    private static void throwUnsupported(MethodVisitor mv, Label unsupported) {
+        String exception = Type.getInternalName(IllegalArgumentException.class);
+        mv.visitLabel(unsupported);
+        mv.visitTypeInsn(NEW, exception);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, exception, "<init>", "()V", false);
+        mv.visitInsn(ATHROW);
+    }
+
+    /**
+     * 基本类型装箱
+     */
+    private static void box(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (null != boxed) {
+            mv.visitMethodInsn(INVOKESTATIC, boxed.getInternalName(), "valueOf", "(" + type.getDescriptor() + ")" + boxed.getDescriptor(), false);
+        }
+    }
+
+    /**
+     * 基本类型拆箱，引用类型转换成属性的类型
+     */
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (null == boxed) {
+            mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+            return;
+        }
+        mv.visitTypeInsn(CHECKCAST, boxed.getInternalName());
+        mv.visitMethodInsn(INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+    }
+
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+        case Type.BOOLEAN:
+            return Type.getType(Boolean.class);
+        case Type.CHAR:
+            return Type.getType(Character.class);
+        case Type.BYTE:
+            return Type.getType(Byte.class);
+        case Type.SHORT:
+            return Type.getType(Short.class);
+        case Type.INT:
+            return Type.getType(Integer.class);
+        case Type.FLOAT:
+            return Type.getType(Float.class);
+        case Type.LONG:
+            return Type.getType(Long.class);
+        case Type.DOUBLE:
+            return Type.getType(Double.class);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * class文件中只读写一个属性的方法
+     * <p/>
+     * getter的方法体必须是aload_0 getfield xreturn，setter必须是aload_0 xload_1 putfield return，属性必须是本类的属性。
+     */
+    private static final class SimpleMethods extends ClassVisitor {
+        /** 类的内部名 */
+        private String owner;
+
+        /** getter 方法名+描述符 -> 属性名 */
+        private final Map<String, String> getters = Maps.newHashMap();
+
+        /** setter 方法名+描述符 -> 属性名 */
+        private final Map<String, String> setters = Maps.newHashMap();
+
+        private SimpleMethods() {
+            super(ASM5);
+        }
+
+        /**
+         * 读取类的class文件 读取失败时没有简单的getter/setter
+         */
+        static SimpleMethods read(Class<?> clazz) {
+            SimpleMethods methods = new SimpleMethods();
+            ClassLoader loader = clazz.getClassLoader();
+            if (null == loader) {
+                return methods;
+            }
+            try (InputStream in = loader.getResourceAsStream(Type.getInternalName(clazz) + ".class")) {
+                if (null != in) {
+                    new ClassReader(in).accept(methods, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                }
+            } catch (Exception e) {
+                logger.debug("read class file of {} failed.", clazz.getName());
+                methods.getters.clear();
+                methods.setters.clear();
+            }
+            return methods;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.owner = name;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+            if (0 != (access & (ACC_STATIC | ACC_ABSTRACT | ACC_NATIVE))) {
+                return null;
+            }
+            return new MethodVisitor(ASM5) {
+                /** 指令 */
+                private final List<String> insns = Lists.newArrayList();
+
+                /** 是否有其他指令 */
+                private boolean other = false;
+
+                @Override
+                public void visitInsn(int opcode) {
+                    insns.add(String.valueOf(opcode));
+                }
+
+                @Override
+                public void visitVarInsn(int opcode, int var) {
+                    insns.add(opcode + " " + var);
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String fieldOwner, String fieldName, String fieldDesc) {
+                    insns.add(opcode + " " + fieldOwner + " " + fieldName + " " + fieldDesc);
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    other = true;
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    other = true;
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String methodOwner, String methodName, String methodDesc, boolean itf) {
+                    other = true;
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String indyName, String indyDesc, Handle bsm, Object... bsmArgs) {
+                    other = true;
+                }
+
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    other = true;
+                }
+
+                @Override
+                public void visitLdcInsn(Object cst) {
+                    other = true;
+                }
+
+                @Override
+                public void visitIincInsn(int var, int increment) {
+                    other = true;
+                }
+
+                @Override
+                public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                    other = true;
+                }
+
+                @Override
+                public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                    other = true;
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String multiDesc, int dims) {
+                    other = true;
+                }
+
+                @Override
+                public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+                    other = true;
+                }
+
+                @Override
+                public void visitEnd() {
+                    if (!other) {
+                        resolve(name, desc, insns);
+                    }
+                }
+            };
+        }
+
+        private void resolve(String name, String desc, List<String> insns) {
+            Type returnType = Type.getReturnType(desc);
+            Type[] args = Type.getArgumentTypes(desc);
+            if (3 == insns.size() && 0 == args.length && Type.VOID_TYPE != returnType) {
+                String fieldName = fieldName(insns.get(1), GETFIELD, returnType);
+                if (null != fieldName && (ALOAD + " 0").equals(insns.get(0)) && String.valueOf(returnType.getOpcode(IRETURN)).equals(insns.get(2))) {
+                    getters.put(name + desc, fieldName);
+                }
+            } else if (4 == insns.size() && 1 == args.length && Type.VOID_TYPE == returnType) {
+                String fieldName = fieldName(insns.get(2), PUTFIELD, args[0]);
+                if (null != fieldName && (ALOAD + " 0").equals(insns.get(0)) && (args[0].getOpcode(ILOAD) + " 1").equals(insns.get(1))
+                        && String.valueOf(RETURN).equals(insns.get(3))) {
+                    setters.put(name + desc, fieldName);
+                }
+            }
+        }
+
+        /**
+         * 本类属性的getfield/putfield指令中的属性名
+         *
+         * @return 不是时返回null
+         */
+        private String fieldName(String insn, int opcode, Type fieldType) {
+            String[] parts = insn.split(" ");
+            if (4 != parts.length || !String.valueOf(opcode).equals(parts[0]) || !owner.equals(parts[1]) || !fieldType.getDescriptor().equals(parts[3])) {
+                return null;
+            }
+            return parts[2];
+        }
+    }
+
+    /**
+     * 生成类的ClassLoader 父ClassLoader为实体类的ClassLoader，不使用时与生成的类一起被回收
+     */
+    private static final class AccessorClassLoader extends ClassLoader {
+        AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
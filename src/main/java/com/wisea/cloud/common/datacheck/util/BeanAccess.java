@@ -0,0 +1,35 @@
+package com.wisea.cloud.common.datacheck.util;
+
+/**
+ * 生成的属性访问类的基类
+ * <p/>
+ * AccessorGenerator为每个实体类生成一个子类，按属性下标直接读写属性(getfield/putfield)或调用只读写该属性的getter/setter，<br/>
+ * 生成的代码中属性和方法都是常量，JIT可以内联成直接的属性读写。只由FieldAccessor使用，index为属性在FieldAccessor.forClass中的下标。
+ */
+public abstract class BeanAccess {
+    protected BeanAccess() {
+    }
+
+    /**
+     * 读取属性
+     *
+     * @param bean
+     *            实体 类型必须与生成时的类一致
+     * @param index
+     *            属性下标
+     * @return 基本类型的值装箱后返回
+     */
+    public abstract Object get(Object bean, int index);
+
+    /**
+     * 写入属性
+     *
+     * @param bean
+     *            实体 类型必须与生成时的类一致
+     * @param index
+     *            属性下标
+     * @param val
+     *            值 基本类型的属性拆箱后写入
+     */
+    public abstract void set(Object bean, int index, Object val);
+}
@@ -0,0 +1,354 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wisea.cloud.common.datacheck.annotation.NullExchager;
+import com.wisea.cloud.common.datacheck.annotation.NullStrategy;
+
+/**
+ * 属性拷贝器
+ * <p/>
+ * 按(来源类,目标类,排除属性)缓存，构建时一次性确定每个目标属性对应的来源属性访问器和空值的处理方式，<br/>
+ * 拷贝时不再创建Map、查找属性或解析@NullStrategy。结果与原来的ConverterUtil.copyProperties完全一致:<br/>
+ * 同名属性取来源类中最后一个(父类的)属性的值，空值只按来源类的public属性上的@NullStrategy处理，<br/>
+ * 非public属性的空值不拷贝，类型不一致等无法赋值的属性跳过。
+ * <p/>
+ * 转换器的结果是String、数值、Boolean、Character或枚举等不可变的值时只转换一次，<br/>
+ * 其他结果(例如Date)每次拷贝时创建新的转换器并转换，目标对象之间不共用可变的默认值。
+ */
+public final class BeanCopier {
+    /** 缓存容量 */
+    private static final int MAXIMUM_SIZE = 1024;
+
+    /** 缓存 */
+    private static final LoadingCache<Key, BeanCopier> CACHE = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build(new CacheLoader<Key, BeanCopier>() {
+        @Override
+        public BeanCopier load(Key key) {
+            return new BeanCopier(key);
+        }
+    });
+
+    /** 来源类 */
+    private final Class<?> fromType;
+
+    /** 目标类 */
+    private final Class<?> targetType;
+
+    /** 来源属性 与targets一一对应 */
+    private final FieldAccessor[] sources;
+
+    /** 目标属性 */
+    private final FieldAccessor[] targets;
+
+    /** 目标属性的类型 */
+    private final Class<?>[] targetTypes;
+
+    /** 空值的处理方式 */
+    private final NullAction[] nullActions;
+
+    private BeanCopier(Key key) {
+        this.fromType = key.fromType;
+        this.targetType = key.targetType;
+        // 与HashMap一样同名属性后面的覆盖前面的
+        Map<String, FieldAccessor> fromAccessors = Maps.newHashMap();
+        for (FieldAccessor accessor : FieldAccessor.forClass(fromType)) {
+            fromAccessors.put(accessor.getName(), accessor);
+        }
+        List<FieldAccessor> sourceList = Lists.newArrayList();
+        List<FieldAccessor> targetList = Lists.newArrayList();
+        List<NullAction> actionList = Lists.newArrayList();
+        for (FieldAccessor target : FieldAccessor.forClass(targetType)) {
+            String name = target.getName();
+            FieldAccessor source = fromAccessors.get(name);
+            int modifiers = target.getField().getModifiers();
+            // static final属性一定不能赋值
+            if (null == source || key.excludes.contains(name) || Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                continue;
+            }
+            sourceList.add(source);
+            targetList.add(target);
+            actionList.add(resolveNullAction(name, target.getType()));
+        }
+        this.sources = sourceList.toArray(new FieldAccessor[sourceList.size()]);
+        this.targets = targetList.toArray(new FieldAccessor[targetList.size()]);
+        this.targetTypes = new Class<?>[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetTypes[i] = targets[i].getType();
+        }
+        this.nullActions = actionList.toArray(new NullAction[actionList.size()]);
+    }
+
+    /**
+     * 取得拷贝器
+     *
+     * @param fromType
+     *            来源类
+     * @param targetType
+     *            目标类
+     * @param excludes
+     *            排除属性
+     * @return
+     */
+    public static BeanCopier of(Class<?> fromType, Class<?> targetType, String... excludes) {
+        try {
+            return CACHE.getUnchecked(new Key(fromType, targetType, excludes));
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 拷贝属性
+     *
+     * @param from
+     *            来源Object 类型必须是fromType
+     * @param target
+     *            目标Object 类型必须是targetType
+     */
+    public void copy(Object from, Object target) {
+        for (int i = 0; i < targets.length; i++) {
+            Object val = sources[i].get(from);
+            NullAction action = nullActions[i];
+            // 空值也直接赋值时不需要判断是否为空
+            if (action.kind != NullAction.SET && isEmpty(val)) {
+                if (action.kind == NullAction.SKIP) {
+                    continue;
+                }
+                try {
+                    val = action.value();
+                } catch (Exception e) {
+                    // 转换失败时跳过
+                    continue;
+                }
+            }
+            if (!isAssignable(targetTypes[i], val)) {
+                // 与赋值时抛出异常一样跳过
+                continue;
+            }
+            try {
+                targets[i].set(target, val);
+            } catch (Exception e) {
+                // 如果遇到问题就跳过
+                continue;
+            }
+        }
+    }
+
+    /**
+     * 拷贝List中的每个元素到新创建的目标对象中 相同类型的元素使用同一个拷贝器
+     *
+     * @param fromList
+     *            来源List
+     * @param clazz
+     *            目标类 必须有public无参构造方法
+     * @param excludes
+     *            排除属性
+     * @return 与fromList顺序相同的新List，null元素对应null
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public static <T> List<T> copyAll(List<?> fromList, Class<T> clazz, String... excludes) throws InstantiationException, IllegalAccessException {
+        if (null == fromList || fromList.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        List<T> result = Lists.newArrayListWithCapacity(fromList.size());
+        BeanCopier copier = null;
+        for (Object from : fromList) {
+            if (null == from) {
+                result.add(null);
+                continue;
+            }
+            if (null == copier || copier.fromType != from.getClass()) {
+                copier = of(from.getClass(), clazz, excludes);
+            }
+            T target = clazz.newInstance();
+            copier.copy(from, target);
+            result.add(target);
+        }
+        return result;
+    }
+
+    public Class<?> getFromType() {
+        return fromType;
+    }
+
+    public Class<?> getTargetType() {
+        return targetType;
+    }
+
+    /**
+     * 确定空值的处理方式 与原来每次拷贝时的判断一致
+     */
+    private NullAction resolveNullAction(String name, Class<?> fieldType) {
+        NullStrategy strategy;
+        try {
+            // 只能取得public属性 其他属性的空值不拷贝
+            strategy = fromType.getField(name).getAnnotation(NullStrategy.class);
+        } catch (NoSuchFieldException | SecurityException e) {
+            return NullAction.SKIP_EMPTY;
+        }
+        if (null == strategy) {
+            return NullAction.SET_EMPTY;
+        }
+        if (strategy.except()) {
+            return NullAction.SKIP_EMPTY;
+        }
+        if (String.class.equals(fieldType) && !strategy.useExchager()) {
+            return NullAction.constant(strategy.value());
+        }
+        Class<? extends NullExchager> exchagerType = strategy.exchager();
+        NullExchager exchager;
+        try {
+            exchager = exchagerType.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            // 接口(默认值NullExchager)、抽象类或没有public无参构造方法 每次都会失败
+            return NullAction.SKIP_EMPTY;
+        } catch (Exception e) {
+            return NullAction.exchage(exchagerType, strategy.value());
+        }
+        Object converted;
+        try {
+            converted = exchager.exchage(strategy.value());
+        } catch (Exception e) {
+            // 转换失败时每次拷贝时重新转换
+            return NullAction.exchage(exchagerType, strategy.value());
+        }
+        return isImmutable(converted) ? NullAction.constant(converted) : NullAction.exchage(exchagerType, strategy.value());
+    }
+
+    /**
+     * 与ConverterUtil.isEmpty一致 toString不可能为空的JDK类型不调用toString
+     */
+    private static boolean isEmpty(Object val) {
+        if (null == val) {
+            return true;
+        }
+        Class<?> type = val.getClass();
+        if (type == Integer.class || type == Long.class || type == Double.class || type == Float.class || type == Short.class || type == Byte.class || type == Boolean.class
+                || type == Character.class || type == BigDecimal.class || type == BigInteger.class || type == Date.class || type == Timestamp.class) {
+            return false;
+        }
+        return ConverterUtil.isEmpty(val);
+    }
+
+    /**
+     * 值的类型是否与属性一致 基本类型的属性由赋值时判断
+     */
+    private static boolean isAssignable(Class<?> type, Object val) {
+        if (type.isPrimitive()) {
+            return null != val;
+        }
+        return null == val || type.isInstance(val);
+    }
+
+    /**
+     * 是否是不可变的值
+     */
+    private static boolean isImmutable(Object val) {
+        return null == val || val instanceof String || val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte || val instanceof Double
+                || val instanceof Float || val.getClass() == BigDecimal.class || val.getClass() == BigInteger.class
+                || val instanceof Boolean || val instanceof Character || val instanceof Enum;
+    }
+
+    /**
+     * 空值的处理方式
+     */
+    private static final class NullAction {
+        /** 空值也直接赋值 */
+        static final int SET = 0;
+
+        /** 空值不拷贝 */
+        static final int SKIP = 1;
+
+        /** 使用默认值 */
+        static final int CONSTANT = 2;
+
+        /** 每次使用转换器转换 */
+        static final int EXCHAGE = 3;
+
+        static final NullAction SET_EMPTY = new NullAction(SET, null, null, null);
+
+        static final NullAction SKIP_EMPTY = new NullAction(SKIP, null, null, null);
+
+        final int kind;
+
+        final Object constant;
+
+        final Class<? extends NullExchager> exchager;
+
+        final String defaultVal;
+
+        private NullAction(int kind, Object constant, Class<? extends NullExchager> exchager, String defaultVal) {
+            this.kind = kind;
+            this.constant = constant;
+            this.exchager = exchager;
+            this.defaultVal = defaultVal;
+        }
+
+        static NullAction constant(Object constant) {
+            return new NullAction(CONSTANT, constant, null, null);
+        }
+
+        static NullAction exchage(Class<? extends NullExchager> exchager, String defaultVal) {
+            return new NullAction(EXCHAGE, null, exchager, defaultVal);
+        }
+
+        Object value() throws InstantiationException, IllegalAccessException {
+            return kind == CONSTANT ? constant : exchager.newInstance().exchage(defaultVal);
+        }
+    }
+
+    /**
+     * 缓存的键
+     */
+    private static final class Key {
+        final Class<?> fromType;
+
+        final Class<?> targetType;
+
+        final ImmutableSet<String> excludes;
+
+        private final int hash;
+
+        Key(Class<?> fromType, Class<?> targetType, String[] excludes) {
+            this.fromType = fromType;
+            this.targetType = targetType;
+            this.excludes = null == excludes || excludes.length == 0 ? ImmutableSet.<String> of() : ImmutableSet.copyOf(excludes);
+            this.hash = Arrays.hashCode(new Object[] { fromType, targetType, this.excludes });
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return fromType == other.fromType && targetType == other.targetType && excludes.equals(other.excludes);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import com.google.common.collect.Maps;
+
+/**
+ * 逻辑校验的上下文
+ * <p/>
+ * 变量按以下顺序查找:表达式中赋值的变量、属性快照、共享的全局函数表，<br/>
+ * 创建时不复制属性和函数，开销与属性和函数的数量无关。
+ */
+final class CheckEvaluationContext extends StandardEvaluationContext {
+    /** 属性快照 */
+    private final Map<String, Object> fieldMap;
+
+    /** 全局函数表 */
+    private final CheckFunctionRegistry functions;
+
+    /** 表达式中赋值或注册的变量 */
+    private Map<String, Object> assigned;
+
+    /**
+     * @param rootObject
+     *            根对象
+     * @param fieldMap
+     *            属性快照 作为变量使用，不会被修改
+     * @param functions
+     *            全局函数表
+     */
+    CheckEvaluationContext(Object rootObject, Map<String, Object> fieldMap, CheckFunctionRegistry functions) {
+        super(rootObject);
+        this.fieldMap = fieldMap;
+        this.functions = functions;
+    }
+
+    @Override
+    public void setVariable(String name, Object value) {
+        if (null == assigned) {
+            assigned = Maps.newHashMap();
+        }
+        assigned.put(name, value);
+    }
+
+    @Override
+    public void setVariables(Map<String, Object> variables) {
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            setVariable(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void registerFunction(String name, Method method) {
+        setVariable(name, method);
+    }
+
+    @Override
+    public Object lookupVariable(String name) {
+        if (null != assigned && assigned.containsKey(name)) {
+            return assigned.get(name);
+        }
+        // 属性优先于同名的函数
+        if (fieldMap.containsKey(name)) {
+            return fieldMap.get(name);
+        }
+        return functions.get(name);
+    }
+}
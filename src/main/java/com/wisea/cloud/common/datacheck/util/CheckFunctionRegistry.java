@@ -0,0 +1,102 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+import com.wisea.cloud.common.datacheck.annotation.CheckApi;
+import com.wisea.cloud.common.datacheck.entity.DataCheckModel;
+
+/**
+ * 逻辑校验的全局函数表
+ * <p/>
+ * 包括isEmpty、isNotEmpty、isOrEmpty以及@CheckModel中声明了@CheckApi的方法，<br/>
+ * 只解析一次，创建后不可修改，所有校验上下文共享同一个函数表。<br/>
+ * 内置函数是确定性函数，@CheckApi的方法声明了deterministic=true时才是确定性函数。
+ */
+public final class CheckFunctionRegistry {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(CheckFunctionRegistry.class);
+
+    /** 函数名与方法 */
+    private final Map<String, Method> functions;
+
+    /** 确定性函数名 */
+    private final Set<String> deterministic;
+
+    private CheckFunctionRegistry(Map<String, Method> functions) {
+        this.functions = Collections.unmodifiableMap(functions);
+        Set<String> names = new HashSet<>();
+        functions.forEach((name, method) -> {
+            CheckApi api = method.getAnnotation(CheckApi.class);
+            // 内置函数没有CheckApi注解
+            if (null == api || api.deterministic()) {
+                names.add(name);
+            }
+        });
+        this.deterministic = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * 构建函数表
+     * <p/>
+     * 与模型中的方法重名时使用模型中的方法
+     *
+     * @param checkModel
+     *            校验模型 可以为空
+     * @return
+     */
+    public static CheckFunctionRegistry build(DataCheckModel checkModel) {
+        Map<String, Method> functions = Maps.newLinkedHashMap();
+        try {
+            // 按类型判断 不调用实体的toString
+            functions.put("isEmpty", EmptyChecker.class.getDeclaredMethod("isEmpty", new Class<?>[] { Object[].class }));
+            functions.put("isNotEmpty", EmptyChecker.class.getDeclaredMethod("isNotEmpty", new Class<?>[] { Object[].class }));
+            functions.put("isOrEmpty", EmptyChecker.class.getDeclaredMethod("isOrEmpty", new Class<?>[] { Object[].class }));
+            // 如果模型中有其他方法，也需要注册
+            if (ConverterUtil.isNotEmpty(checkModel)) {
+                functions.putAll(checkModel.getConfig());
+            }
+        } catch (Exception e) {
+            logger.error("exception in CheckFunctionRegistry", e);
+        }
+        return new CheckFunctionRegistry(functions);
+    }
+
+    /**
+     * 取得函数
+     *
+     * @param name
+     *            函数名
+     * @return 没有时返回null
+     */
+    public Method get(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * 是否是确定性函数
+     *
+     * @param name
+     *            函数名
+     * @return 没有该函数时返回false
+     */
+    public boolean isDeterministic(String name) {
+        return deterministic.contains(name);
+    }
+
+    /**
+     * 取得全部函数
+     *
+     * @return 不可修改的Map
+     */
+    public Map<String, Method> getFunctions() {
+        return functions;
+    }
+}
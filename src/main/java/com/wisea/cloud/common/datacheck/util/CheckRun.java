@@ -0,0 +1,107 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.wisea.cloud.common.datacheck.exception.DataCheckException;
+
+/**
+ * 一次校验的公共状态
+ * <p/>
+ * 同一次校验中的全部会话共用，记录已经校验过的对象(按对象地址)和校验的对象数量，<br/>
+ * 同一个对象被多处引用时只校验一次，嵌套深度和对象数量超过限制时抛出异常。<br/>
+ * 并行校验时多个线程共用，同一个对象同时在多个线程中校验时各自校验，结果相同。
+ */
+final class CheckRun {
+    /** 全局函数表 */
+    private final CheckFunctionRegistry functions;
+
+    /** 最大嵌套深度 0为不限制 */
+    private final int maxDepth;
+
+    /** 最多校验的对象数量 0为不限制 */
+    private final int maxNodes;
+
+    /** 已经校验的对象数量 */
+    private final AtomicInteger nodes = new AtomicInteger();
+
+    /** 已经校验过的对象和结果 第一次记录时创建 */
+    private volatile Map<Object, Object> results;
+
+    /**
+     * @param functions
+     *            全局函数表
+     * @param maxDepth
+     *            最大嵌套深度 0为不限制
+     * @param maxNodes
+     *            最多校验的对象数量 0为不限制
+     */
+    CheckRun(CheckFunctionRegistry functions, int maxDepth, int maxNodes) {
+        this.functions = functions;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    CheckFunctionRegistry getFunctions() {
+        return functions;
+    }
+
+    /**
+     * 开始校验一个对象 检查深度和数量限制
+     *
+     * @param data
+     *            对象
+     * @param depth
+     *            嵌套深度 最外层为0
+     * @throws DataCheckException
+     *             超过限制时
+     */
+    void enter(Object data, int depth) {
+        if (maxDepth > 0 && depth > maxDepth) {
+            throw new DataCheckException("DataCheck depth exceeds " + maxDepth + " at " + data.getClass().getName());
+        }
+        if (nodes.incrementAndGet() > maxNodes && maxNodes > 0) {
+            throw new DataCheckException("DataCheck objects exceed " + maxNodes);
+        }
+    }
+
+    /**
+     * 取得已经校验过的对象的结果
+     *
+     * @param data
+     *            对象
+     * @return 没有校验过时返回null
+     */
+    Object getResult(Object data) {
+        Map<Object, Object> map = results;
+        return null == map ? null : map.get(data);
+    }
+
+    /**
+     * 记录对象的校验结果
+     *
+     * @param data
+     *            对象
+     * @param result
+     *            结果
+     */
+    void putResult(Object data, Object result) {
+        Map<Object, Object> map = results;
+        if (null == map) {
+            synchronized (this) {
+                map = results;
+                if (null == map) {
+                    map = Collections.synchronizedMap(new IdentityHashMap<>());
+                    results = map;
+                }
+            }
+        }
+        map.put(data, result);
+    }
+
+    int getNodeCount() {
+        return nodes.get();
+    }
+}
@@ -0,0 +1,162 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.Map;
+
+import org.springframework.expression.EvaluationContext;
+
+/**
+ * 校验会话
+ * <p/>
+ * 每个被校验的对象对应一个节点，嵌套校验时创建子节点并作为参数向下传递，<br/>
+ * 节点中保存正在校验的对象、父节点、嵌套深度，以及第一次逻辑校验时才创建的属性快照和SpEL上下文。<br/>
+ * 不使用线程变量，校验过程中切换线程或在线程池中并发校验都不会互相影响，<br/>
+ * 并行校验时多个线程同时创建同一个节点的属性快照，结果相同，以最后一次为准。<br/>
+ * 属性快照中的parent是父节点的属性快照。<br/>
+ * reach记录子树中的逻辑校验引用到的上层对象层数，为0时该对象的校验结果与所在位置无关，可以被同一次校验中的其他引用复用。
+ */
+final class CheckSession {
+    /** 正在校验的对象 */
+    private final Object data;
+
+    /** 父节点 最外层为null */
+    private final CheckSession parent;
+
+    /** 嵌套深度 最外层为0 */
+    private final int depth;
+
+    /** 本次校验的公共状态 整个会话共用 */
+    private final CheckRun run;
+
+    /** 子树中的逻辑校验引用到的本节点以上的层数 */
+    private int reach;
+
+    /** 属性快照 并行校验时子节点可能在多个线程中读取 */
+    private volatile Map<String, Object> fieldMap;
+
+    /** SpEL上下文 */
+    private volatile EvaluationContext context;
+
+    private CheckSession(Object data, CheckSession parent, int depth, CheckRun run) {
+        this.data = data;
+        this.parent = parent;
+        this.depth = depth;
+        this.run = run;
+    }
+
+    /**
+     * 创建最外层对象的会话
+     *
+     * @param data
+     *            被校验的对象
+     * @param run
+     *            本次校验的公共状态
+     * @return
+     */
+    static CheckSession root(Object data, CheckRun run) {
+        return new CheckSession(data, null, 0, run);
+    }
+
+    /**
+     * 创建嵌套对象的会话
+     *
+     * @param child
+     *            被校验的嵌套对象
+     * @return
+     */
+    CheckSession child(Object child) {
+        return new CheckSession(child, this, depth + 1, run);
+    }
+
+    Object getData() {
+        return data;
+    }
+
+    CheckSession getParent() {
+        return parent;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    CheckRun getRun() {
+        return run;
+    }
+
+    /**
+     * 父节点中是否有同一个对象(按对象地址) 有时说明对象之间循环引用
+     *
+     * @return
+     */
+    boolean isCycle() {
+        for (CheckSession p = parent; null != p; p = p.parent) {
+            if (p.data == data) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录本节点的逻辑校验引用的上层对象层数
+     *
+     * @param levels
+     *            逻辑表达式中parent的层数
+     */
+    synchronized void reach(int levels) {
+        if (levels > reach) {
+            reach = levels;
+        }
+    }
+
+    /**
+     * 合并子节点的引用层数 子节点引用n层时本节点引用n-1层
+     *
+     * @param child
+     *            子节点
+     */
+    void absorb(CheckSession child) {
+        reach(child.getReach() - 1);
+    }
+
+    /**
+     * 取得子树中的逻辑校验引用到的本节点以上的层数
+     *
+     * @return 小于等于0时校验结果与所在位置无关
+     */
+    synchronized int getReach() {
+        return reach;
+    }
+
+    /**
+     * 取得属性快照 第一次使用时创建
+     *
+     * @return
+     */
+    Map<String, Object> getFieldMap() {
+        if (null == fieldMap) {
+            // 获取全部属性
+            Map<String, Object> map = ConverterUtil.getAllFieldsMap(data);
+            // 构建上下文
+            if (null != parent) {
+                map.put("parent", parent.getFieldMap());
+            }
+            fieldMap = map;
+        }
+        return fieldMap;
+    }
+
+    /**
+     * 取得SpEL上下文 第一次使用时创建
+     *
+     * @return
+     */
+    EvaluationContext getContext() {
+        if (null == context) {
+            Map<String, Object> map = getFieldMap();
+            // 属性快照同时作为根对象和变量，全局函数共享
+            context = new CheckEvaluationContext(map, map, run.getFunctions());
+        }
+        return context;
+    }
+}
@@ -0,0 +1,106 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * 被校验的值
+ * <p/>
+ * 一个属性的全部规则共用，是否为空、字符串形式(与EmptyChecker.toString(val)一致)和各种长度在第一次使用时计算并保存，<br/>
+ * 中英文长度和字节长度由StringMetrics.of遍历一次字符串同时算出。<br/>
+ * 同一个值不会被多个规则重复转换成字符串或重复计算长度。只在一次校验中使用，不是线程安全的。
+ */
+final class CheckValue {
+    /** 未计算的长度 */
+    private static final int UNKNOWN = -1;
+
+    /** 值 */
+    private final Object val;
+
+    /** 是否为空 未计算时为null */
+    private Boolean empty;
+
+    /** 字符串形式 为空时为"" */
+    private String str;
+
+    /** 字符数 */
+    private int length = UNKNOWN;
+
+    /** 中英文长度、字节长度等 第一次使用时计算 */
+    private StringMetrics metrics;
+
+    /** 字节长度 */
+    private int byteLength = UNKNOWN;
+
+    /** 计算字节长度的字符集 */
+    private Charset byteCharset;
+
+    CheckValue(Object val) {
+        this.val = val;
+    }
+
+    Object get() {
+        return val;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 与EmptyChecker.isEmpty(val)一致
+     */
+    boolean isEmpty() {
+        if (null == empty) {
+            empty = EmptyChecker.isEmpty(val);
+        }
+        return empty;
+    }
+
+    /**
+     * 字符串形式
+     *
+     * @return 与EmptyChecker.toString(val)一致
+     */
+    String getString() {
+        if (null == str) {
+            str = isEmpty() ? "" : ConverterUtil.toString(val);
+        }
+        return str;
+    }
+
+    int getLength() {
+        if (UNKNOWN == length) {
+            length = getString().length();
+        }
+        return length;
+    }
+
+    /**
+     * 遍历一次字符串算出的各种长度
+     *
+     * @return
+     */
+    StringMetrics getMetrics() {
+        if (null == metrics) {
+            metrics = StringMetrics.of(getString());
+        }
+        return metrics;
+    }
+
+    int getMixLength() {
+        return getMetrics().getMixLength();
+    }
+
+    /**
+     * 字节长度 规则中只有一个字符集，字符集不同时重新计算
+     *
+     * @param charset
+     *            字符集
+     * @return
+     */
+    int getByteLength(Charset charset) {
+        if (UNKNOWN == byteLength || !charset.equals(byteCharset)) {
+            byteLength = getMetrics().getByteLength(charset);
+            byteCharset = charset;
+        }
+        return byteLength;
+    }
+}
@@ -0,0 +1,68 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.function.Function;
+
+/**
+ * 按Class缓存的值
+ * <p/>
+ * 值保存在各个Class中(ClassValue)，不会阻止类和ClassLoader被卸载。<br/>
+ * ClassValue.computeValue在并发首次访问时可能被调用多次，所以ClassValue中只保存轻量的持有者，<br/>
+ * 真正的构建在持有者的锁内进行:同一个Class只构建一次，其他线程等待构建完成后取得同一个值，构建完成后读取不加锁。<br/>
+ * 构建抛出异常时不保存结果，下次取得时重新构建。
+ *
+ * @param <V>
+ *            值的类型
+ */
+public final class ClassCache<V> {
+    /** 构建值 不能返回null */
+    private final Function<Class<?>, V> builder;
+
+    /** 每个Class的持有者 */
+    private final ClassValue<Holder<V>> holders = new ClassValue<Holder<V>>() {
+        @Override
+        protected Holder<V> computeValue(Class<?> type) {
+            return new Holder<>();
+        }
+    };
+
+    /**
+     * @param builder
+     *            构建值 不能返回null
+     */
+    public ClassCache(Function<Class<?>, V> builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * 取得某类的值 第一次取得时构建
+     *
+     * @param type
+     *            类
+     * @return
+     */
+    public V get(Class<?> type) {
+        return holders.get(type).get(type, builder);
+    }
+
+    /**
+     * 一个Class的值 在自己的锁内只构建一次
+     */
+    private static final class Holder<V> {
+        /** 构建完成的值 */
+        private volatile V value;
+
+        V get(Class<?> type, Function<Class<?>, V> builder) {
+            V result = value;
+            if (null == result) {
+                synchronized (this) {
+                    result = value;
+                    if (null == result) {
+                        result = builder.apply(type);
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -11,12 +11,9 @@ import java.math.RoundingMode;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.sql.Timestamp;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -26,19 +23,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.wisea.cloud.common.datacheck.annotation.CheckApi;
 import com.wisea.cloud.common.datacheck.annotation.CheckModel;
-import com.wisea.cloud.common.datacheck.annotation.NullStrategy;
 
 /**
  * 转换工具类
@@ -185,9 +177,7 @@ public final class ConverterUtil {
         if (dt == null) {
             return null;
         }
-
-        DateFormat df = new SimpleDateFormat("yyyy/MM/dd HH:mm");
-        return df.format(dt);
+        return DateFormatter.of("yyyy/MM/dd HH:mm").format(dt);
     }
 
     /**
@@ -204,7 +194,7 @@ public final class ConverterUtil {
         if (obj == null) {
             return null;
         }
-        DateFormat df = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSSSSSSSS");
+        DateFormatter df = DateFormatter.of("yyyy/MM/dd HH:mm:ss.SSSSSSSSS");
 
         if (obj instanceof Date) {
             return df.format(new Timestamp(((Date) obj).getTime()));
@@ -268,7 +258,7 @@ public final class ConverterUtil {
                 obj = temp1 + "/" + temp2 + "/" + temp3;
             }
         }
-        DateFormat df = new SimpleDateFormat(formate);
+        DateFormatter df = DateFormatter.of(formate);
         Date dateTemp = null;
         try {
             dateTemp = df.parse(obj.toString());
@@ -585,8 +575,7 @@ public final class ConverterUtil {
      * @return 字符串
      */
     public static String dateToString(Date date, String format) {
-        SimpleDateFormat sf = new SimpleDateFormat(format);
-        return sf.format(date);
+        return DateFormatter.of(format).format(date);
     }
 
     /**
@@ -600,40 +589,8 @@ public final class ConverterUtil {
      * @throws ParseException
      */
     public static Date toDate(String str) throws ParseException {
-        // 设置日期正则格式
-        Map<String, String> regexMap = new HashMap<String, String>();
-        regexMap.put("REGEX_DATE_MIDDELLINE", REGEX_DATE_MIDDELLINE);
-        regexMap.put("REGEX_DATE_BACKSLASH", REGEX_DATE_BACKSLASH);
-        regexMap.put("REGEX_DATE_TIME_MIDDELLINE", REGEX_DATE_TIME_MIDDELLINE);
-        regexMap.put("REGEX_DATE_TIME_BACKSLASH", REGEX_DATE_TIME_BACKSLASH);
-        regexMap.put("REGEX_TIME_STAMP_MIDDELLINE", REGEX_TIME_STAMP_MIDDELLINE);
-        regexMap.put("REGEX_TIME_STAMP_BACKSLASH", REGEX_TIME_STAMP_BACKSLASH);
-
-        SimpleDateFormat sf = null;
-        for (String regex : regexMap.keySet()) {
-            Pattern pat = Pattern.compile(regexMap.get(regex));
-            Matcher mat = pat.matcher(str);
-            if (mat.find()) {
-                if (regex.equals("REGEX_DATE_MIDDELLINE")) {
-                    sf = new SimpleDateFormat("yyyy-MM-dd");
-                } else if (regex.equals("REGEX_DATE_BACKSLASH")) {
-                    sf = new SimpleDateFormat(FORMATE_DATE);
-                } else if (regex.equals("REGEX_DATE_TIME_MIDDELLINE")) {
-                    sf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                } else if (regex.equals("REGEX_DATE_TIME_BACKSLASH")) {
-                    sf = new SimpleDateFormat(FORMATE_DATE_TIME_24H);
-                } else if (regex.equals("REGEX_TIME_STAMP_MIDDELLINE")) {
-                    sf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-                } else if (regex.equals("REGEX_TIME_STAMP_BACKSLASH")) {
-                    sf = new SimpleDateFormat(FORMATE_TIME_STAMP_24H);
-                }
-                break;
-            }
-        }
-        if (null == sf) {
-            return null;
-        }
-        return sf.parse(str);
+        // 扫描一次字符串判断格式 不再每次编译正则和创建SimpleDateFormat
+        return DateFormatter.parseDefault(str);
     }
 
     /**
@@ -1522,11 +1479,11 @@ public final class ConverterUtil {
     public static Map<String, Object> entityToMap(Object entity)
             throws SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, IntrospectionException {
         Map<String, Object> retMap = new HashMap<String, Object>();
-        Field[] fileds = getAllFields(entity.getClass());
-        for (Field field : fileds) {
-            field.setAccessible(true);
+        List<FieldAccessor> accessors = FieldAccessor.forClass(entity.getClass());
+        for (int i = 0; i < accessors.size(); i++) {
+            FieldAccessor accessor = accessors.get(i);
             // 使用PropertyDescriptor有缺陷，如果是SerialVersionUID会报异常
-            retMap.put(field.getName(), field.get(entity));
+            retMap.put(accessor.getName(), accessor.get(entity));
             // PropertyDescriptor pd = new PropertyDescriptor(field.getName(),entity.getClass());
             // if(isNotEmpty(pd)){
             // Method getMethod = pd.getReadMethod();//获得get方法
@@ -1562,11 +1519,7 @@ public final class ConverterUtil {
      * @return
      */
     public static String getCurrentTime(String format) {
-        SimpleDateFormat formatter = new SimpleDateFormat(format);
-        Date currTime = new Date();
-
-        String curTime = formatter.format(currTime);
-        return curTime;
+        return DateFormatter.of(format).format(new Date());
     }
 
     /**
@@ -1863,22 +1816,8 @@ public final class ConverterUtil {
      * @return 字符串的长度
      */
     public static int getMixLength(String validateStr) {
-        int valueLength = 0;
-        String chinese = "[\u0391-\uFFE5]";
-        /* 获取字段值的长度，如果含中文字符，则每个中文字符长度为2，否则为1 */
-        for (int i = 0; i < validateStr.length(); i++) {
-            /* 获取一个字符 */
-            String temp = validateStr.substring(i, i + 1);
-            /* 判断是否为中文字符 */
-            if (temp.matches(chinese)) {
-                /* 中文字符长度为2 */
-                valueLength += 2;
-            } else {
-                /* 其他字符长度为1 */
-                valueLength += 1;
-            }
-        }
-        return valueLength;
+        // 逐个字符比较范围 不再为每个字符创建字符串并匹配正则
+        return StringMetrics.mixLength(validateStr);
     }
 
     /**
@@ -2029,17 +1968,10 @@ public final class ConverterUtil {
      */
     public static Map<String, Object> getAllFieldsMap(Object entity) {
         Map<String, Object> map = new HashMap<String, Object>();
-        try {
-            for (Field field : getAllFields(entity.getClass())) {
-                field.setAccessible(true);
-                map.put(field.getName(), field.get(entity));
-            }
-        } catch (SecurityException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+        List<FieldAccessor> accessors = FieldAccessor.forClass(entity.getClass());
+        for (int i = 0; i < accessors.size(); i++) {
+            FieldAccessor accessor = accessors.get(i);
+            map.put(accessor.getName(), accessor.get(entity));
         }
         return map;
     }
@@ -2201,55 +2133,27 @@ public final class ConverterUtil {
      *            排除属性
      */
     public static void copyProperties(Object from, Object target, String... excludes) {
-        Map<String, String> excludeMap = Maps.newHashMap();
-        // 如果排除的属性不为空则转成Map
-        if (null != excludes) {
-            excludeMap = Arrays.asList(excludes).stream().collect(Collectors.toMap(String::toString, String::toString));
-        }
-        // 获取(属性名,属性值)的map
-        Map<String, Object> fromFiledMap = getAllFieldsMap(from);
-        // 获取target全部属性
-        Field[] targetFields = getAllFields(target.getClass());
-        // 遍历
-        for (Field tField : targetFields) {
-            String fName = tField.getName();
-            // 如果某属性在 from中包含 且 在排除中不包含 则进行set操作
-            if (fromFiledMap.containsKey(fName) && !excludeMap.containsKey(fName)) {
-                try {
-                    tField.setAccessible(true);
-                    Object val = fromFiledMap.get(fName);
-                    // 如果是空值，则使用空值策略注解
-                    if (ConverterUtil.isEmpty(val)) {
-                        NullStrategy strategy = from.getClass().getField(fName).getAnnotation(NullStrategy.class);
-                        if (ConverterUtil.isNotEmpty(strategy)) {
-                            // 如果空值跳过，则不进行set操作
-                            if (strategy.except()) {
-                                continue;
-                            }
-                            // 获取属性的类型
-                            Class<?> fieldType = tField.getType();
-                            // 如果属性的类型是String,则直接使用value
-                            if (String.class.equals(fieldType)) {
-                                // 如果强制使用转换器，也需要转换
-                                if (strategy.useExchager()) {
-                                    val = strategy.exchager().newInstance().exchage(strategy.value());
-                                } else {
-                                    // 否则就直接使用value
-                                    val = strategy.value();
-                                }
-                            } else {
-                                // 其他的需要经过转换器转换
-                                val = strategy.exchager().newInstance().exchage(strategy.value());
-                            }
-                        }
-                    }
-                    tField.set(target, val);
-                } catch (Exception e) {
-                    // 如果遇到问题就跳过
-                    continue;
-                }
-            }
-        }
+        // 拷贝器按(来源类,目标类,排除属性)缓存 属性和空值策略只解析一次
+        BeanCopier.of(from.getClass(), target.getClass(), excludes).copy(from, target);
+    }
+
+    /**
+     * 批量拷贝属性
+     * 
+     * @param fromList
+     *            来源List
+     * @param clazz
+     *            目标类 必须有public无参构造方法
+     * @param excludes
+     *            排除属性
+     * @return 与fromList顺序相同的目标对象List
+     * @throws InstantiationException
+     *             实例化目标类异常
+     * @throws IllegalAccessException
+     *             实例化目标类异常
+     */
+    public static <T> List<T> copyAll(List<?> fromList, Class<T> clazz, String... excludes) throws InstantiationException, IllegalAccessException {
+        return BeanCopier.copyAll(fromList, clazz, excludes);
     }
 
     /**
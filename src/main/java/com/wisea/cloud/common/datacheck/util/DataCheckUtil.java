@@ -1,27 +1,35 @@
 package com.wisea.cloud.common.datacheck.util;
 
-import java.lang.reflect.Field;
-import java.text.MessageFormat;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.NamedThreadLocal;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import com.google.common.collect.Lists;
 import com.wisea.cloud.common.boot.SpringBootContext;
 import com.wisea.cloud.common.datacheck.annotation.Check;
+import com.wisea.cloud.common.datacheck.entity.BatchCheckResult;
+import com.wisea.cloud.common.datacheck.entity.CheckViolation;
 import com.wisea.cloud.common.datacheck.entity.DataCheck;
 import com.wisea.cloud.common.datacheck.entity.DataCheckModel;
+import com.wisea.cloud.common.datacheck.entity.PathNode;
+import com.wisea.cloud.common.datacheck.exception.DataCheckException;
+import com.wisea.cloud.common.datacheck.plan.CheckEngineMode;
+import com.wisea.cloud.common.datacheck.plan.CheckPlan;
+import com.wisea.cloud.common.datacheck.plan.CheckRule;
+import com.wisea.cloud.common.datacheck.plan.DataChecker;
+import com.wisea.cloud.common.datacheck.plan.FieldPlan;
 
 /**
  * 数据校验工具类
@@ -35,12 +43,67 @@ public class DataCheckUtil {
      * 日志对象
      */
     public static Logger logger = LoggerFactory.getLogger(DataCheckUtil.class);
-    /** 校验上下文 */
-    private static final ThreadLocal<EvaluationContext> threadLocalContext = new NamedThreadLocal<>("ThreadLocalCheck");
-    /** 递归层级 */
-    private static final String RECURSIVE_LEVEL = "DataCheckRecursiveLevel";
     /** 校验模型 */
     private static final DataCheckModel checkModel = SpringBootContext.getBean(DataCheckModel.class);
+    /** 校验引擎模式 */
+    private static volatile CheckEngineMode engineMode = CheckEngineMode.REFLECT;
+    /** 全局函数表 */
+    private static volatile CheckFunctionRegistry functionRegistry;
+    /** 最大嵌套深度 0为不限制 */
+    private static volatile int maxDepth;
+    /** 一次校验最多校验的对象数量 0为不限制 */
+    private static volatile int maxNodes;
+
+    /**
+     * 取得校验引擎模式
+     * 
+     * @return
+     */
+    public static CheckEngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    /**
+     * 设置校验引擎模式
+     * 
+     * @param mode
+     *            为空时使用REFLECT
+     */
+    public static void setEngineMode(CheckEngineMode mode) {
+        engineMode = null == mode ? CheckEngineMode.REFLECT : mode;
+    }
+
+    /**
+     * 设置最大嵌套深度
+     * <p/>
+     * 级联校验和List属性的嵌套层数超过该值时抛出DataCheckException，防止过深的对象图耗尽线程栈。
+     * 
+     * @param depth
+     *            0或负数时不限制
+     */
+    public static void setMaxDepth(int depth) {
+        maxDepth = Math.max(0, depth);
+    }
+
+    public static int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 设置一次校验最多校验的对象数量
+     * <p/>
+     * 同一个对象只计算一次，超过该值时抛出DataCheckException。
+     * 
+     * @param nodes
+     *            0或负数时不限制
+     */
+    public static void setMaxNodes(int nodes) {
+        maxNodes = Math.max(0, nodes);
+    }
+
+    public static int getMaxNodes() {
+        return maxNodes;
+    }
 
     /**
      * 校验并返回校验结果
@@ -57,44 +120,222 @@ public class DataCheckUtil {
 
     /**
      * 校验并返回校验结果
+     * <p/>
+     * 遇到第一个不通过的校验就返回，不生成校验消息，结果与checkResultMsg(data)是否为空一致。<br/>
+     * 没有正则校验、逻辑校验和嵌套对象的实体，校验通过时不创建任何对象。
      * 
      * @param data
      * @return
      */
     public static boolean check(Object data) {
-        if (ConverterUtil.isNotEmpty(checkResultMsg(data))) {
+        return checkFast(data, null, null);
+    }
+
+    /**
+     * 快速校验 处理顺序与checkResultMsg(Object)一致
+     * 
+     * @param data
+     * @param parent
+     *            所在对象的会话 最外层为null
+     * @param run
+     *            本次校验的公共状态 最外层的单个对象为null
+     * @return
+     */
+    private static boolean checkFast(Object data, CheckSession parent, CheckRun run) {
+        if (isEmptyData(data)) {
+            return true;
+        }
+        try {
+            // 校验以list为方法参数的
+            if (data instanceof List) {
+                List<?> objList = (List<?>) data;
+                // 全部元素共用一次校验的状态，同一个对象只校验一次
+                CheckRun shared = null == run ? newRun() : run;
+                for (int i = 0; i < objList.size(); i++) {
+                    if (!checkFast(objList.get(i), parent, shared)) {
+                        return false;
+                    }
+                }
+            } else if (data instanceof Map) {
+                // 校验以Map为方法参数的
+                Map<?, ?> objMap = (Map<?, ?>) data;
+                CheckRun shared = null == run ? newRun() : run;
+                for (Object obj : objMap.keySet()) {
+                    if (!checkFast(objMap.get(obj), parent, shared)) {
+                        return false;
+                    }
+                }
+            } else {
+                // 最外层的单个对象只在需要时才创建会话，结果不受影响
+                CheckSession session = null == parent ? (null == run ? null : CheckSession.root(data, run)) : parent.child(data);
+                if (null == session) {
+                    return checkFields(data, null);
+                }
+                // 循环引用的对象已经在上层校验
+                if (session.isCycle()) {
+                    return true;
+                }
+                Object checked = session.getRun().getResult(data);
+                if (null != checked) {
+                    return (Boolean) checked;
+                }
+                session.getRun().enter(data, session.getDepth());
+                boolean valid = checkFields(data, session);
+                remember(session, valid);
+                return valid;
+            }
+        } catch (DataCheckException e) {
+            // 超过校验限制时不再逐层包装
+            throw e;
+        } catch (Exception e) {
+            // 使用框架中统一的异常处理，包装一层runtime异常是为了此处不抛错
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    /**
+     * 快速校验一个对象的属性
+     * 
+     * @param data
+     * @param session
+     *            当前对象的会话 为null时在需要时创建
+     * @return
+     */
+    private static boolean checkFields(Object data, CheckSession session) throws Exception {
+        CheckPlan plan = CheckPlan.forClass(data.getClass());
+        DataChecker checker = plan.getCompiledChecker();
+        if (null == checker && CheckEngineMode.GENERATED == engineMode) {
+            checker = plan.getGeneratedChecker();
+        }
+        List<FieldPlan> fields = plan.getCheckFields();
+        for (int f = 0; f < fields.size(); f++) {
+            FieldPlan fieldPlan = fields.get(f);
+            Object val = null == checker ? fieldPlan.getValue(data) : checker.getValue(data, f);
+            // 嵌套校验和逻辑校验之前创建会话
+            if (null == session && (val instanceof List || fieldPlan.hasLogic() || fieldPlan.getCheck().cascade())) {
+                session = CheckSession.root(data, newRun());
+            }
+            if (val instanceof List) {
+                List<?> objList = (List<?>) val;
+                for (int i = 0; i < objList.size(); i++) {
+                    if (!checkFast(objList.get(i), session, session.getRun())) {
+                        return false;
+                    }
+                }
+            } else {
+                EvaluationContext context = fieldPlan.hasLogic() ? session.getContext() : null;
+                boolean valid = isValid(fieldPlan.getName(), val, fieldPlan.getRule(), context);
+                if (null != context) {
+                    session.reach(fieldPlan.getRule().getParentReach());
+                }
+                if (!valid) {
+                    return false;
+                }
+                // 级联校验
+                if (fieldPlan.getCheck().cascade() && !checkFast(val, session, session.getRun())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 创建一次校验的公共状态
+     * 
+     * @return
+     */
+    static CheckRun newRun() {
+        return new CheckRun(getFunctionRegistry(), maxDepth, maxNodes);
+    }
+
+    /**
+     * 对象校验结束 向父节点合并引用层数，校验结果与所在位置无关时记录下来供其他引用复用
+     * 
+     * @param session
+     *            对象的会话
+     * @param result
+     *            校验结果
+     */
+    private static void remember(CheckSession session, Object result) {
+        if (null != session.getParent()) {
+            session.getParent().absorb(session);
+        }
+        if (session.getReach() <= 0) {
+            session.getRun().putResult(session.getData(), result);
+        }
+    }
+
+    /**
+     * 复用同一次校验中已经校验过的对象的校验信息 路径换成当前的路径
+     * 
+     * @param session
+     *            对象的会话
+     * @param path
+     *            对象的路径
+     * @param violations
+     *            校验不通过的信息
+     * @return 没有校验过时返回false
+     */
+    private static boolean reuse(CheckSession session, PathNode path, List<CheckViolation> violations) {
+        Checked checked = (Checked) session.getRun().getResult(session.getData());
+        if (null == checked) {
             return false;
         }
+        for (CheckViolation violation : checked.violations) {
+            violations.add(violation.withParent(PathNode.rebase(violation.getParent(), checked.path, path)));
+        }
         return true;
     }
 
     /**
-     * 增加递归层级
+     * 对象校验结束 记录校验信息
      * 
+     * @param session
+     *            对象的会话
+     * @param path
+     *            对象的路径
+     * @param violations
+     *            校验不通过的信息
+     * @param start
+     *            该对象的第一条信息的下标
      */
-    private static void addRecursiveLevel() {
-        // 获取递归层级
-        Integer level = CurrentThreadLocalUtils.get(RECURSIVE_LEVEL);
-        if (ConverterUtil.isEmpty(level)) {
-            // 为空就设置成0
-            CurrentThreadLocalUtils.put(RECURSIVE_LEVEL, 0);
-        } else {
-            // 不为空就+1
-            CurrentThreadLocalUtils.put(RECURSIVE_LEVEL, level + 1);
+    private static void remember(CheckSession session, PathNode path, List<CheckViolation> violations, int start) {
+        List<CheckViolation> own = start == violations.size() ? Collections.<CheckViolation>emptyList() : Lists.newArrayList(violations.subList(start, violations.size()));
+        remember(session, new Checked(own, path));
+    }
+
+    /**
+     * 已经校验过的对象的校验信息
+     */
+    private static final class Checked {
+        /** 校验不通过的信息 */
+        private final List<CheckViolation> violations;
+
+        /** 校验时对象的路径 */
+        private final PathNode path;
+
+        private Checked(List<CheckViolation> violations, PathNode path) {
+            this.violations = violations;
+            this.path = path;
         }
     }
 
     /**
-     * 减少递归层级
+     * 与EmptyChecker.isEmpty相同，兼容模式下没有重写toString和equals的实体也不调用toString
      * 
+     * @param data
+     * @return
      */
-    private static void subRecursiveLevel() {
-        // 获取递归层级
-        Integer level = CurrentThreadLocalUtils.get(RECURSIVE_LEVEL);
-        if (ConverterUtil.isNotEmpty(level) && 0 != level.intValue()) {
-            // 不为空就-1
-            CurrentThreadLocalUtils.put(RECURSIVE_LEVEL, level - 1);
+    static boolean isEmptyData(Object data) {
+        if (null == data || !EmptyChecker.isLegacy()) {
+            return EmptyChecker.isEmpty(data);
+        }
+        if (data instanceof String || data instanceof Collection || data instanceof Map || data instanceof Object[]) {
+            return ConverterUtil.isEmpty(data);
         }
+        return !CheckPlan.forClass(data.getClass()).isPlainObject() && ConverterUtil.isEmpty(data);
     }
 
     /**
@@ -107,280 +348,621 @@ public class DataCheckUtil {
      * @return
      */
     public static List<String> checkResultMsg(Object data, Map<String, DataCheck> checkMap) {
-        List<String> errorMsg = Lists.newArrayList();
-        if (ConverterUtil.isEmpty(data)) {
-            return errorMsg;
+        return toMessages(checkViolations(data, checkMap), null);
+    }
+
+    /**
+     * 校验并返回校验不通过的信息 消息在取得时才生成
+     * 
+     * @param data
+     *            entity
+     * @param checkMap
+     *            属性名与datacheck的map
+     * @return
+     */
+    public static List<CheckViolation> checkViolations(Object data, Map<String, DataCheck> checkMap) {
+        List<CheckViolation> violations = Lists.newArrayList();
+        collect(data, checkMap, null, newRun(), null, violations);
+        return violations;
+    }
+
+    /**
+     * 校验并把校验不通过的信息添加到violations中
+     * 
+     * @param data
+     *            entity
+     * @param checkMap
+     *            属性名与datacheck的map
+     * @param parent
+     *            所在对象的会话 最外层为null
+     * @param run
+     *            本次校验的公共状态
+     * @param path
+     *            data的路径 最外层为null
+     * @param violations
+     *            校验不通过的信息
+     */
+    private static void collect(Object data, Map<String, DataCheck> checkMap, CheckSession parent, CheckRun run, PathNode path, List<CheckViolation> violations) {
+        if (isEmptyData(data)) {
+            return;
         }
-        // 设置递归层级
-        addRecursiveLevel();
         try {
             // 校验以list为方法参数的
             if (data instanceof List) {
                 List<?> objList = (List<?>) data;
-                for (int i = 0; i < objList.size(); i++) {
-                    List<String> msgList = checkResultMsg(objList.get(i), checkMap);
-                    // list前缀
-                    errorMsg.addAll(changeMsgList(msgList, "[" + i + "]."));
-                }
+                // 元素较多时并行校验 结果按下标顺序合并
+                ParallelCheck.forRange(objList.size(), (from, to, out) -> {
+                    for (int i = from; i < to; i++) {
+                        // list前缀
+                        collect(objList.get(i), checkMap, parent, run, PathNode.element(path, null, i), out);
+                    }
+                }, violations);
             } else if (data instanceof Map) {
                 // 校验以Map为方法参数的
                 Map<?, ?> objMap = (Map<?, ?>) data;
-                for (Object obj : objMap.keySet()) {
-                    List<String> msgList = checkResultMsg(objMap.get(obj), checkMap);
-                    errorMsg.addAll(changeMsgList(msgList, "[" + obj + "]."));
-                }
+                Object[] keys = objMap.keySet().toArray();
+                ParallelCheck.forRange(keys.length, (from, to, out) -> {
+                    for (int i = from; i < to; i++) {
+                        collect(objMap.get(keys[i]), checkMap, parent, run, PathNode.element(path, null, keys[i]), out);
+                    }
+                }, violations);
             } else {
-                // 初始化校验上下文
-                loadContext(data);
-
-                Class<?> clazz = data.getClass();
-                // 取得全部属性
-                Field[] fields = ConverterUtil.getAllFields(clazz);
-                for (Field field : fields) {
-                    if (!checkMap.containsKey(field.getName())) {
+                // 创建当前对象的会话
+                CheckSession session = null == parent ? CheckSession.root(data, run) : parent.child(data);
+                // 循环引用的对象已经在上层校验，已经校验过的对象复用校验信息
+                if (session.isCycle() || reuse(session, path, violations)) {
+                    return;
+                }
+                run.enter(data, session.getDepth());
+                int start = violations.size();
+
+                // 取得校验计划中的全部属性
+                List<FieldPlan> fields = CheckPlan.forClass(data.getClass()).getFields();
+                for (int f = 0; f < fields.size(); f++) {
+                    FieldPlan fieldPlan = fields.get(f);
+                    String feildName = fieldPlan.getName();
+                    DataCheck datacheck = checkMap.get(feildName);
+                    if (null == datacheck) {
                         continue;
                     }
-                    DataCheck datacheck = checkMap.get(field.getName());
-                    // 取得check注解
-                    Check req = datacheck.getAnnotation();
-                    // 如果没有校验注解则跳过
-                    if (ConverterUtil.isEmpty(req)) {
+                    // 取得编译后的校验规则 每个DataCheck只编译一次
+                    CheckRule rule = datacheck.getRule();
+                    // 如果没有校验规则则跳过
+                    if (null == rule) {
                         continue;
                     }
-                    // 设置属性可以访问
-                    String feildName = field.getName();
-                    field.setAccessible(true);
-                    Object val = field.get(data);
+                    Object val = fieldPlan.getValue(data);
                     // 校验以list为方法参数的
                     if (val instanceof List) {
                         List<?> objList = (List<?>) val;
-                        for (Object obj : objList) {
-                            errorMsg.addAll(checkResultMsg(obj, checkMap));
-                        }
+                        ParallelCheck.forRange(objList.size(), (from, to, out) -> {
+                            for (int i = from; i < to; i++) {
+                                collect(objList.get(i), checkMap, session, run, path, out);
+                            }
+                        }, violations);
                     } else if (data instanceof Map) {
                         // 校验以Map为方法参数的
                         Map<?, ?> objMap = (Map<?, ?>) val;
                         for (Object obj : objMap.keySet()) {
-                            errorMsg.addAll(checkResultMsg(obj, checkMap));
+                            collect(obj, checkMap, session, run, path, violations);
                         }
                     } else {
-                        errorMsg.addAll(checkOneField(feildName, val, req));
+                        checkField(feildName, val, rule, session, path, violations);
                         // 级联校验
-                        if (req.cascade()) {
-                            // 需要临时保存当前的上下文，因为级联时会被覆盖设置
-                            EvaluationContext thisContext = threadLocalContext.get();
-                            List<String> msgList = checkResultMsg(val, checkMap);
-                            errorMsg.addAll(changeMsgList(msgList, feildName + "."));
-                            // 设置到当前线程变量
-                            threadLocalContext.set(thisContext);
+                        if (datacheck.isCascade()) {
+                            collect(val, checkMap, session, run, PathNode.property(path, feildName), violations);
                         }
                     }
                 } // end field forEach
+                remember(session, path, violations, start);
             }
+        } catch (DataCheckException e) {
+            // 超过校验限制时不再逐层包装
+            throw e;
         } catch (Exception e) {
             // 使用框架中统一的异常处理，包装一层runtime异常是为了此处不抛错
             throw new RuntimeException(e);
-        } finally {
-            // 减少递归层级
-            subRecursiveLevel();
-            // 清空上下文
-            cleanContext();
         }
-        return errorMsg;
     }
 
-    @SuppressWarnings("unchecked")
-    private static void setParents(StandardEvaluationContext context, Map<String, Object> fieldMap) {
-        Object parent = fieldMap.get("parent");
-        if (ConverterUtil.isNotEmpty(parent)) {
-            context.setVariable("parent", fieldMap);
-            Map<String, Object> parentMap = (Map<String, Object>) parent;
-            if (parentMap.containsKey("parent")) {
-                setParents(context, parentMap);
-            }
+    /**
+     * 取得全局函数表 第一次使用时构建
+     * 
+     * @return
+     */
+    static CheckFunctionRegistry getFunctionRegistry() {
+        CheckFunctionRegistry registry = functionRegistry;
+        if (null == registry) {
+            registry = CheckFunctionRegistry.build(checkModel);
+            functionRegistry = registry;
         }
+        return registry;
     }
 
     /**
-     * 移除上下文
-     *
+     * 重新构建全局函数表
+     * <p/>
+     * @CheckModel中的方法发生变化时调用
      */
-    private static void cleanContext() {
+    public static void refreshFunctionRegistry() {
+        functionRegistry = null;
+        // 函数是否是确定性函数可能变化
+        ResultCache.clear();
+    }
 
-        // 获取递归层级
-        Integer level = CurrentThreadLocalUtils.get(RECURSIVE_LEVEL);
-        // 递归层级是0时才能清空上下文
-        if (ConverterUtil.isNotEmpty(level) && 0 == level.intValue()) {
-            EvaluationContext context = threadLocalContext.get();
-            if (ConverterUtil.isNotEmpty(context)) {
-                threadLocalContext.remove();
+    /**
+     * 生成校验消息
+     * 
+     * @param violations
+     *            校验信息
+     * @param locale
+     *            语言 为空时使用默认语言
+     * @return
+     */
+    static List<String> toMessages(List<CheckViolation> violations, Locale locale) {
+        List<String> errorMsg = Lists.newArrayListWithCapacity(violations.size());
+        try {
+            for (CheckViolation violation : violations) {
+                errorMsg.add(null == locale ? violation.getMessage() : violation.getMessage(locale));
             }
+        } catch (Exception e) {
+            // 与校验时的异常处理一致
+            throw new RuntimeException(e);
         }
+        return errorMsg;
     }
 
     /**
-     * 初始化校验上下文
+     * 校验并返回校验消息
      * 
      * @param data
+     *            entity
+     * @return
+     */
+    public static List<String> checkResultMsg(Object data) {
+        // 开启了结果缓存时 可以缓存的类使用缓存的结果
+        if (ResultCache.isEnabled()) {
+            return ResultCache.checkResultMsg(data);
+        }
+        return toMessages(checkViolations(data), null);
+    }
+
+    /**
+     * 校验并返回指定语言的校验消息
+     * 
+     * @param data
+     *            entity
+     * @param locale
+     *            语言 从资源文件中取得消息模板
+     * @return
      */
-    private static void loadContext(Object data) {
-        // 获取全部属性
-        Map<String, Object> fieldMap = ConverterUtil.getAllFieldsMap(data);
-        EvaluationContext parentContext = threadLocalContext.get();
-        // 构建上下文
-        if (ConverterUtil.isNotEmpty(parentContext)) {
-            fieldMap.put("parent", parentContext.getRootObject().getValue());
+    public static List<String> checkResultMsg(Object data, Locale locale) {
+        return toMessages(checkViolations(data), locale);
+    }
+
+    /**
+     * 流式校验 逐个取出元素校验，校验不通过的信息立即交给sink
+     * <p/>
+     * 不保存已经校验过的元素和校验信息，占用的内存与元素数量无关，适用于导入导出等无法全部读入内存的数据。<br/>
+     * 路径与校验List时一致，以元素的下标开头，例如[3].name。
+     * 
+     * @param iterator
+     *            元素
+     * @param sink
+     *            接收校验不通过的信息
+     * @return 校验不通过的信息数量
+     */
+    public static long checkStream(Iterator<?> iterator, Consumer<? super CheckViolation> sink) {
+        // 每个元素的校验信息交给sink后清空复用
+        List<CheckViolation> buffer = Lists.newArrayList();
+        long index = 0;
+        long count = 0;
+        while (iterator.hasNext()) {
+            Object element = iterator.next();
+            // 每个元素单独校验，不保留已经校验过的对象
+            collect(element, null, newRun(), PathNode.element(null, null, index++), buffer);
+            for (int i = 0; i < buffer.size(); i++) {
+                sink.accept(buffer.get(i));
+            }
+            count += buffer.size();
+            buffer.clear();
         }
-        // 新建上下文
-        StandardEvaluationContext context = new StandardEvaluationContext(fieldMap);
-        // 设置上下文父节点
-        setParents(context, fieldMap);
+        return count;
+    }
 
+    /**
+     * 流式校验 按顺序消费stream，不关闭stream
+     * 
+     * @param stream
+     *            元素
+     * @param sink
+     *            接收校验不通过的信息
+     * @return 校验不通过的信息数量
+     */
+    public static long checkStream(Stream<?> stream, Consumer<? super CheckViolation> sink) {
+        return checkStream(stream.iterator(), sink);
+    }
+
+    /**
+     * 流式校验
+     * 
+     * @param spliterator
+     *            元素
+     * @param sink
+     *            接收校验不通过的信息
+     * @return 校验不通过的信息数量
+     */
+    public static long checkStream(Spliterator<?> spliterator, Consumer<? super CheckViolation> sink) {
+        return checkStream(Spliterators.iterator(spliterator), sink);
+    }
+
+    /**
+     * 校验并返回校验不通过的信息
+     * <p/>
+     * 只保存消息模板和参数，取得消息时才生成字符串，只需要判断是否通过或只取部分消息时不再格式化全部消息。
+     * 
+     * @param data
+     *            entity
+     * @return
+     */
+    public static List<CheckViolation> checkViolations(Object data) {
+        return checkViolationsAt(null, data);
+    }
+
+    /**
+     * 校验并返回校验不通过的信息 路径以path开头
+     * 
+     * @param path
+     *            data的路径 例如批量校验时的行号
+     * @param data
+     *            entity
+     * @return
+     */
+    public static List<CheckViolation> checkViolationsAt(PathNode path, Object data) {
+        List<CheckViolation> violations = Lists.newArrayList();
+        collect(data, null, newRun(), path, violations);
+        return violations;
+    }
+
+    /**
+     * 批量校验同一个类的多行数据
+     * <p/>
+     * 按属性和规则的顺序逐列校验:每个属性的值只读取一次，每个规则对全部行执行完后再执行下一个规则，<br/>
+     * 共用同一个校验计划，只记录不通过的行和每个规则不通过的行数，不生成校验消息。<br/>
+     * 某一行是否不通过与check(该行)的结果一致，校验消息通过BatchCheckResult.getViolations取得。
+     * 
+     * @param type
+     *            行的类型 为空的行视为校验通过
+     * @param rows
+     *            行
+     * @return
+     * @throws IllegalArgumentException
+     *             行的类型与type不一致时
+     */
+    public static BatchCheckResult checkBatch(Class<?> type, List<?> rows) {
+        Object[] data = rows.toArray();
+        CheckPlan plan = CheckPlan.forClass(type);
+        List<FieldPlan> fields = plan.getCheckFields();
+        String[] fieldNames = new String[fields.size()];
+        for (int f = 0; f < fieldNames.length; f++) {
+            fieldNames[f] = fields.get(f).getName();
+        }
+        BatchCheckResult.Builder result = BatchCheckResult.builder(data, fieldNames);
+        // 需要校验的行
+        BitSet active = new BitSet(data.length);
+        for (int r = 0; r < data.length; r++) {
+            Object row = data[r];
+            if (null != row && type != row.getClass()) {
+                throw new IllegalArgumentException("row " + r + " is " + row.getClass().getName() + ", not " + type.getName());
+            }
+            if (!isEmptyData(row)) {
+                active.set(r);
+            }
+        }
+        DataChecker checker = plan.getCompiledChecker();
+        if (null == checker && CheckEngineMode.GENERATED == engineMode) {
+            checker = plan.getGeneratedChecker();
+        }
+        // 逻辑校验和嵌套校验时才创建每行的会话，全部行共用一次校验的状态，被多行引用的对象只校验一次
+        CheckSession[] sessions = new CheckSession[data.length];
+        CheckRun run = newRun();
+        Object[] column = new Object[data.length];
         try {
-            // 为上下文设置全局函数
-            setEvaluationContextCommonMethods(context);
+            for (int f = 0; f < fieldNames.length; f++) {
+                FieldPlan fieldPlan = fields.get(f);
+                // 读取一列 List属性只校验元素，不执行规则
+                BitSet ruleRows = new BitSet(data.length);
+                BitSet listRows = new BitSet(data.length);
+                for (int r = active.nextSetBit(0); r >= 0; r = active.nextSetBit(r + 1)) {
+                    Object val = null == checker ? fieldPlan.getValue(data[r]) : checker.getValue(data[r], f);
+                    column[r] = val;
+                    if (val instanceof List) {
+                        listRows.set(r);
+                    } else {
+                        ruleRows.set(r);
+                    }
+                }
+                checkColumn(f, fieldPlan, column, ruleRows, data, sessions, run, result);
+                // 嵌套校验
+                boolean cascade = fieldPlan.getCheck().cascade();
+                for (int r = active.nextSetBit(0); r >= 0; r = active.nextSetBit(r + 1)) {
+                    boolean valid = true;
+                    if (listRows.get(r)) {
+                        List<?> objList = (List<?>) column[r];
+                        for (int i = 0; valid && i < objList.size(); i++) {
+                            valid = checkFast(objList.get(i), session(sessions, data, r, run), run);
+                        }
+                    } else if (cascade) {
+                        valid = checkFast(column[r], session(sessions, data, r, run), run);
+                    }
+                    if (!valid) {
+                        result.fail(r, f, BatchCheckResult.NESTED);
+                    }
+                }
+            }
+        } catch (DataCheckException e) {
+            // 超过校验限制时不再逐层包装
+            throw e;
         } catch (Exception e) {
-            logger.debug("exception in DataCheck with logic", e);
+            // 使用框架中统一的异常处理，包装一层runtime异常是为了此处不抛错
+            throw new RuntimeException(e);
         }
-        // 将所有属性赋值给上下文
-        context.setVariables(fieldMap);
-        // fieldMap.forEach((k, v) -> {
-        // context.setVariable(k, v);
-        // });
-        // 设置到当前线程变量
-        threadLocalContext.set(context);
+        return result.build();
     }
 
     /**
-     * 为上下文设置全局函数
-     * 
-     * @param context
+     * 对一列值逐个规则校验 每个规则对全部行执行完后再执行下一个规则
      */
-    private static void setEvaluationContextCommonMethods(StandardEvaluationContext context) {
-        if (null != context) {
-            // 为上下文设置全局函数
-            try {
-                context.registerFunction("isEmpty", ConverterUtil.class.getDeclaredMethod("isEmpty", new Class[] { Object[].class }));
-                context.registerFunction("isNotEmpty", ConverterUtil.class.getDeclaredMethod("isNotEmpty", new Class[] { Object[].class }));
-                context.registerFunction("isOrEmpty", ConverterUtil.class.getDeclaredMethod("isOrEmpty", new Class[] { Object[].class }));
-                // 如果模型中有其他方法，也需要注册
-                if (ConverterUtil.isNotEmpty(checkModel)) {
-                    checkModel.getConfig().forEach((k, v) -> {
-                        context.registerFunction(k, v);
-                    });
+    private static void checkColumn(int f, FieldPlan fieldPlan, Object[] column, BitSet rows, Object[] data, CheckSession[] sessions, CheckRun run, BatchCheckResult.Builder result) {
+        CheckRule rule = fieldPlan.getRule();
+        if (null == rule || rows.isEmpty()) {
+            return;
+        }
+        // 每行的值 该属性的全部规则共用，字符串和长度每行只计算一次
+        CheckValue[] values = new CheckValue[column.length];
+        int[] lens = null;
+        int[] mixes = null;
+        int[] bytes = null;
+        if (rule.hasLengthTest()) {
+            lens = new int[column.length];
+            mixes = rule.hasMixLength() ? new int[column.length] : null;
+            bytes = rule.hasByteLength() ? new int[column.length] : null;
+            for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                CheckValue value = value(values, column, r);
+                lens[r] = value.getLength();
+                if (null != mixes) {
+                    mixes[r] = value.getMixLength();
+                }
+                if (null != bytes) {
+                    bytes[r] = value.getByteLength(rule.getCharset());
                 }
-            } catch (Exception e) {
-                logger.error("exception in setEvaluationContextCommonMethods", e);
+            }
+        }
+        int length = rule.getLength();
+        int mixLength = rule.getMixLength();
+        int byteLength = rule.getByteLength();
+        for (int t : rule.getTests()) {
+            switch (t) {
+            case CheckRule.REQUIRED:
+                for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                    if (value(values, column, r).isEmpty()) {
+                        result.fail(r, f, t);
+                    }
+                }
+                break;
+            case CheckRule.LENGTH:
+            case CheckRule.MIN_LENGTH:
+            case CheckRule.MAX_LENGTH:
+                if (length > 0) {
+                    lengthColumn(f, t, lens, length, rows, result);
+                }
+                if (mixLength > 0) {
+                    lengthColumn(f, t, mixes, mixLength, rows, result);
+                }
+                if (byteLength > 0) {
+                    lengthColumn(f, t, bytes, byteLength, rows, result);
+                }
+                break;
+            case CheckRule.LIVEABLE:
+                if (null != rule.getLiveables()) {
+                    for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                        if (!rule.getLiveableSet().contains(column[r])) {
+                            result.fail(r, f, t);
+                        }
+                    }
+                }
+                break;
+            case CheckRule.REGEX:
+                if (null != rule.getRegex()) {
+                    for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                        if (!rule.matches(value(values, column, r).getString())) {
+                            result.fail(r, f, t);
+                        }
+                    }
+                }
+                break;
+            case CheckRule.LOGIC:
+                for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                    if (!logicCheck(fieldPlan.getName(), rule.getLogic(), session(sessions, data, r, run).getContext())) {
+                        result.fail(r, f, t);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        // 多个lengthCheck
+        if (rule.isRange()) {
+            int[] lenRange = rule.getLengthRange();
+            if (null != lenRange) {
+                rangeColumn(f, lens, lenRange, rows, result);
+            }
+            int[] mixRange = rule.getMixLengthRange();
+            if (null != mixRange) {
+                rangeColumn(f, mixes, mixRange, rows, result);
+            }
+            int[] byteRange = rule.getByteLengthRange();
+            if (null != byteRange) {
+                rangeColumn(f, bytes, byteRange, rows, result);
             }
         }
     }
 
     /**
-     * 错误消息转换
-     * 
-     * @param msgList
-     *            错误消息
-     * @param prefix
-     *            前缀
-     * @return
+     * 一列的长度比较
      */
-    private static List<String> changeMsgList(List<String> msgList, String prefix) {
-        if (ConverterUtil.isNotEmpty(msgList, prefix)) {
-            return msgList.stream().map(i -> prefix + i).collect(Collectors.toList());
+    private static void lengthColumn(int f, int rule, int[] lens, int length, BitSet rows, BatchCheckResult.Builder result) {
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+            int len = lens[r];
+            boolean invalid = CheckRule.MIN_LENGTH == rule ? len < length : CheckRule.MAX_LENGTH == rule ? len > length : len != length;
+            if (invalid) {
+                result.fail(r, f, rule);
+            }
         }
-        return msgList;
     }
 
     /**
-     * 校验并返回校验消息
+     * 一列的长度区间比较
+     */
+    private static void rangeColumn(int f, int[] lens, int[] range, BitSet rows, BatchCheckResult.Builder result) {
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+            if (lens[r] < range[0]) {
+                result.fail(r, f, CheckRule.MIN_LENGTH);
+            }
+            if (lens[r] > range[1]) {
+                result.fail(r, f, CheckRule.MAX_LENGTH);
+            }
+        }
+    }
+
+    /**
+     * 取得某一行的值 第一次使用时创建
+     */
+    private static CheckValue value(CheckValue[] values, Object[] column, int r) {
+        CheckValue value = values[r];
+        if (null == value) {
+            value = new CheckValue(column[r]);
+            values[r] = value;
+        }
+        return value;
+    }
+
+    /**
+     * 取得某一行的会话 第一次使用时创建
+     */
+    private static CheckSession session(CheckSession[] sessions, Object[] data, int r, CheckRun run) {
+        CheckSession session = sessions[r];
+        if (null == session) {
+            session = CheckSession.root(data[r], run);
+            sessions[r] = session;
+        }
+        return session;
+    }
+
+    /**
+     * 校验并把校验不通过的信息添加到violations中
+     * <p/>
+     * 嵌套校验时传入子节点的路径，同一个对象的校验信息共用路径节点，不再逐层复制和拼接前缀。
      * 
-     * @param feildName
-     *            名称
-     * @param val
-     *            值
-     * @param req
-     *            Check注解
-     * @return
+     * @param data
+     *            entity
+     * @param parent
+     *            所在对象的会话 最外层为null
+     * @param run
+     *            本次校验的公共状态
+     * @param path
+     *            data的路径 最外层为null
+     * @param violations
+     *            校验不通过的信息
      */
-    public static List<String> checkResultMsg(Object data) {
-        List<String> errorMsg = Lists.newArrayList();
-        if (ConverterUtil.isEmpty(data)) {
-            return errorMsg;
+    private static void collect(Object data, CheckSession parent, CheckRun run, PathNode path, List<CheckViolation> violations) {
+        if (isEmptyData(data)) {
+            return;
         }
-        // 设置递归层级
-        addRecursiveLevel();
         try {
             // 校验以list为方法参数的
             if (data instanceof List) {
                 List<?> objList = (List<?>) data;
-                for (int i = 0; i < objList.size(); i++) {
-                    List<String> msgList = checkResultMsg(objList.get(i));
-                    // list前缀
-                    errorMsg.addAll(changeMsgList(msgList, "[" + i + "]."));
-                }
+                // 元素较多时并行校验 结果按下标顺序合并
+                ParallelCheck.forRange(objList.size(), (from, to, out) -> {
+                    for (int i = from; i < to; i++) {
+                        // list前缀
+                        collect(objList.get(i), parent, run, PathNode.element(path, null, i), out);
+                    }
+                }, violations);
             } else if (data instanceof Map) {
                 // 校验以Map为方法参数的
                 Map<?, ?> objMap = (Map<?, ?>) data;
-                for (Object obj : objMap.keySet()) {
-                    List<String> msgList = checkResultMsg(objMap.get(obj));
-                    errorMsg.addAll(changeMsgList(msgList, "[" + obj + "]."));
-                }
-            } else {
-                // 初始化校验上下文
-                loadContext(data);
-
-                Class<?> clazz = data.getClass();
-                // 取得全部属性
-                Field[] fields = ConverterUtil.getAllFields(clazz);
-                for (Field field : fields) {
-                    // 取得check注解
-                    Check req = field.getDeclaredAnnotation(Check.class);
-                    // 如果没有校验注解则跳过
-                    if (ConverterUtil.isEmpty(req)) {
-                        continue;
+                Object[] keys = objMap.keySet().toArray();
+                ParallelCheck.forRange(keys.length, (from, to, out) -> {
+                    for (int i = from; i < to; i++) {
+                        collect(objMap.get(keys[i]), parent, run, PathNode.element(path, null, keys[i]), out);
                     }
-                    // 设置属性可以访问
-                    String feildName = field.getName();
-                    field.setAccessible(true);
-                    Object val = field.get(data);
+                }, violations);
+            } else {
+                // 创建当前对象的会话
+                CheckSession session = null == parent ? CheckSession.root(data, run) : parent.child(data);
+                // 循环引用的对象已经在上层校验，已经校验过的对象复用校验信息
+                if (session.isCycle() || reuse(session, path, violations)) {
+                    return;
+                }
+                run.enter(data, session.getDepth());
+                int start = violations.size();
+
+                CheckPlan plan = CheckPlan.forClass(data.getClass());
+                // 优先使用编译时生成的校验器，生成模式下使用运行时生成的校验器
+                DataChecker checker = plan.getCompiledChecker();
+                if (null == checker && CheckEngineMode.GENERATED == engineMode) {
+                    checker = plan.getGeneratedChecker();
+                }
+                // 取得校验计划中声明了@Check的属性
+                List<FieldPlan> fields = plan.getCheckFields();
+                for (int f = 0; f < fields.size(); f++) {
+                    FieldPlan fieldPlan = fields.get(f);
+                    String feildName = fieldPlan.getName();
+                    Check req = fieldPlan.getCheck();
+                    Object val = null == checker ? fieldPlan.getValue(data) : checker.getValue(data, f);
                     // 校验以list为方法参数的
                     if (val instanceof List) {
                         List<?> objList = (List<?>) val;
-                        for (int i = 0; i < objList.size(); i++) {
-                            List<String> msgList = checkResultMsg(objList.get(i));
-                            errorMsg.addAll(changeMsgList(msgList, feildName + "[" + i + "]."));
-                        }
+                        ParallelCheck.forRange(objList.size(), (from, to, out) -> {
+                            for (int i = from; i < to; i++) {
+                                collect(objList.get(i), session, run, PathNode.element(path, feildName, i), out);
+                            }
+                        }, violations);
                     } else if (data instanceof Map) {
                         // 校验以Map为方法参数的
                         Map<?, ?> objMap = (Map<?, ?>) data;
                         for (Object obj : objMap.keySet()) {
-                            List<String> msgList = checkResultMsg(objMap.get(obj));
-                            errorMsg.addAll(changeMsgList(msgList, feildName + "." + obj + "."));
+                            collect(objMap.get(obj), session, run, PathNode.property(PathNode.property(path, feildName), String.valueOf(obj)), violations);
                         }
                     } else {
-                        errorMsg.addAll(checkOneField(feildName, val, req));
+                        // 只有逻辑校验才需要上下文
+                        EvaluationContext context = fieldPlan.hasLogic() ? session.getContext() : null;
+                        if (null == checker) {
+                            checkRule(feildName, val, fieldPlan.getRule(), context, path, violations);
+                        } else {
+                            checker.checkField(f, val, path, violations, context);
+                        }
+                        if (null != context) {
+                            session.reach(fieldPlan.getRule().getParentReach());
+                        }
                         // 级联校验
                         if (req.cascade()) {
-                            // 需要临时保存当前的上下文，因为级联时会被覆盖设置
-                            EvaluationContext thisContext = threadLocalContext.get();
-                            List<String> msgList = checkResultMsg(val);
-                            errorMsg.addAll(changeMsgList(msgList, feildName + "."));
-                            // 设置到当前线程变量
-                            threadLocalContext.set(thisContext);
+                            collect(val, session, run, PathNode.property(path, feildName), violations);
                         }
                     }
                 } // end field forEach
+                remember(session, path, violations, start);
             }
+        } catch (DataCheckException e) {
+            // 超过校验限制时不再逐层包装
+            throw e;
         } catch (Exception e) {
             // 使用框架中统一的异常处理，包装一层runtime异常是为了此处不抛错
             throw new RuntimeException(e);
-        } finally {
-            // 减少递归层级
-            subRecursiveLevel();
-            // 清空上下文
-            cleanContext();
         }
-        return errorMsg;
     }
 
     /**
@@ -397,174 +979,245 @@ public class DataCheckUtil {
      * @return
      */
     public static List<String> checkOneField(String feildName, Object val, Check req, EvaluationContext context) {
-        List<String> errorMsg = Lists.newArrayList();
+        return checkOneField(feildName, val, CheckRule.cached(req), context);
+    }
+
+    /**
+     * 按编译后的校验规则校验并返回校验消息
+     * 
+     * @param feildName
+     *            名称
+     * @param val
+     *            值
+     * @param rule
+     *            校验规则
+     * @param context
+     *            上下文 没有逻辑校验时可以为空
+     * @return
+     */
+    public static List<String> checkOneField(String feildName, Object val, CheckRule rule, EvaluationContext context) {
+        List<CheckViolation> violations = Lists.newArrayList();
+        checkRule(feildName, val, rule, context, null, violations);
+        return toMessages(violations, null);
+    }
+
+    /**
+     * 按编译后的校验规则校验 只记录消息模板和参数
+     * 
+     * @param feildName
+     *            名称
+     * @param val
+     *            值
+     * @param rule
+     *            校验规则
+     * @param context
+     *            上下文 没有逻辑校验时可以为空
+     * @param path
+     *            所在对象的路径
+     * @param violations
+     *            校验不通过的信息
+     */
+    static void checkRule(String feildName, Object val, CheckRule rule, EvaluationContext context, PathNode path, List<CheckViolation> violations) {
         // 设置了check的进行相关校验
-        if (ConverterUtil.isNotEmpty(req)) {
-            String[] tests = req.test();
-            if (null != tests && tests.length > 0) {
-                List<String> testList = Arrays.asList(tests);
-                for (String t : testList) {
-                    if (t.equalsIgnoreCase("required")) {
-                        // 为空则添加到ErrorMsg
-                        if (ConverterUtil.isEmpty(val)) {
-                            errorMsg.add(MessageFormat.format(req.requiredMsg(), feildName));
-                        }
-                    }
-                    if (t.equalsIgnoreCase("length")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        int length = req.length();
-                        int mixLength = req.mixLength();
-                        if (ConverterUtil.isNotEmpty(length) && length > 0) {
-                            // 长度等于
-                            if (ConverterUtil.toString(val, "").length() != length) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "标准", length));
-                            }
-                        }
-                        if (ConverterUtil.isNotEmpty(mixLength) && mixLength > 0) {
-                            // 混合长度等于
-                            if (ConverterUtil.getMixLength(ConverterUtil.toString(val, "")) != mixLength) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "标准", mixLength));
-                            }
-                        }
-                    }
-                    if (t.equalsIgnoreCase("minLength")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        int length = req.length();
-                        int mixLength = req.mixLength();
-                        if (ConverterUtil.isNotEmpty(length) && length > 0) {
-                            // 最小长度
-                            if (ConverterUtil.toString(val, "").length() < length) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最小", length));
-                            }
-                        }
-                        if (ConverterUtil.isNotEmpty(mixLength) && mixLength > 0) {
-                            // 最小混合长度
-                            if (ConverterUtil.getMixLength(ConverterUtil.toString(val, "")) < mixLength) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最小", mixLength));
-                            }
-                        }
-                    }
-                    if (t.equalsIgnoreCase("maxLength")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        int length = req.length();
-                        int mixLength = req.mixLength();
-                        if (ConverterUtil.isNotEmpty(length) && length > 0) {
-                            // 最大长度
-                            if (ConverterUtil.toString(val, "").length() > length) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最大", length));
-                            }
-                        }
-                        if (ConverterUtil.isNotEmpty(mixLength) && mixLength > 0) {
-                            // 最大混合长度
-                            if (ConverterUtil.getMixLength(ConverterUtil.toString(val, "")) > mixLength) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最大", mixLength));
-                            }
-                        }
-                    }
-                    if (t.equalsIgnoreCase("liveable")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        String[] liveables = req.liveable();
-                        if (null != liveables && liveables.length > 0) {
-                            boolean exixts = false;
-                            for (String live : liveables) {
-                                if (live.equals(ConverterUtil.toString(val))) {
-                                    exixts = true;
-                                    break;
-                                }
-                            }
-                            // 不存在则添加到ErrorMsg
-                            if (!exixts) {
-                                errorMsg.add(MessageFormat.format(req.liveableMsg(), feildName));
-                            }
-                        }
-                    }
-                    if (t.equalsIgnoreCase("regex")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        String[] regs = req.regex();
-                        if (null != regs && regs.length > 0) {
-                            boolean check = true;
-                            for (String reg : regs) {
-                                // 正则校验
-                                Pattern pattern = Pattern.compile(reg);
-                                Matcher matcher = pattern.matcher(ConverterUtil.toString(val, ""));
-                                // 校验若有一个不通过就返回
-                                if (!matcher.find()) {
-                                    check = false;
-                                    break;
-                                }
-                            }
-                            // 校验不通过添加到ErrorMsg
-                            if (!check) {
-                                errorMsg.add(MessageFormat.format(req.regexMsg(), feildName));
-                            }
-                        }
-                    }
-                    // 逻辑表达式校验
-                    if (t.equalsIgnoreCase("logic")) {
-                        // 空值跳过
-                        if (req.nullSkip()) {
-                            continue;
-                        }
-                        boolean check = true;
-                        check = logicCheck(feildName, req, context);
-                        // 校验不通过添加到ErrorMsg
-                        if (!check) {
-                            errorMsg.add(MessageFormat.format(req.logicMsg(), feildName));
-                        }
-                    }
+        if (null == rule) {
+            return;
+        }
+        // 全部规则共用 字符串和长度只计算一次
+        CheckValue value = new CheckValue(val);
+        int length = rule.getLength();
+        int mixLength = rule.getMixLength();
+        int byteLength = rule.getByteLength();
+        for (int t : rule.getTests()) {
+            switch (t) {
+            case CheckRule.REQUIRED:
+                // 为空则添加到ErrorMsg
+                if (value.isEmpty()) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.REQUIRED, val, rule.getRequiredMsg(), feildName));
                 }
+                break;
+            case CheckRule.LENGTH:
+                // 长度等于
+                if (length > 0 && value.getLength() != length) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.LENGTH, val, rule.getLengthMsg(), feildName, "标准", length));
+                }
+                // 混合长度等于
+                if (mixLength > 0 && value.getMixLength() != mixLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.LENGTH, val, rule.getLengthMsg(), feildName, "标准", mixLength));
+                }
+                // 字节长度等于
+                if (byteLength > 0 && value.getByteLength(rule.getCharset()) != byteLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.LENGTH, val, rule.getLengthMsg(), feildName, "标准", byteLength));
+                }
+                break;
+            case CheckRule.MIN_LENGTH:
+                // 最小长度
+                if (length > 0 && value.getLength() < length) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", length));
+                }
+                // 最小混合长度
+                if (mixLength > 0 && value.getMixLength() < mixLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", mixLength));
+                }
+                // 最小字节长度
+                if (byteLength > 0 && value.getByteLength(rule.getCharset()) < byteLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", byteLength));
+                }
+                break;
+            case CheckRule.MAX_LENGTH:
+                // 最大长度
+                if (length > 0 && value.getLength() > length) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", length));
+                }
+                // 最大混合长度
+                if (mixLength > 0 && value.getMixLength() > mixLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", mixLength));
+                }
+                // 最大字节长度
+                if (byteLength > 0 && value.getByteLength(rule.getCharset()) > byteLength) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", byteLength));
+                }
+                break;
+            case CheckRule.LIVEABLE:
+                // 不存在则添加到ErrorMsg
+                if (null != rule.getLiveables() && !rule.getLiveableSet().contains(val)) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.LIVEABLE, val, rule.getLiveableMsg(), feildName));
+                }
+                break;
+            case CheckRule.REGEX:
+                // 校验不通过添加到ErrorMsg
+                if (null != rule.getRegex() && !rule.matches(value.getString())) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.REGEX, val, rule.getRegexMsg(), feildName));
+                }
+                break;
+            case CheckRule.LOGIC:
+                // 逻辑表达式校验
+                if (!logicCheck(feildName, rule.getLogic(), context)) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.LOGIC, val, rule.getLogicMsg(), feildName));
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        // 多个lengthCheck
+        if (rule.isRange()) {
+            int[] lenRange = rule.getLengthRange();
+            if (null != lenRange) {
+                // 最小长度
+                if (value.getLength() < lenRange[0]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", lenRange[0]));
+                }
+                // 最大长度
+                if (value.getLength() > lenRange[1]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", lenRange[1]));
+                }
+            }
+            int[] mixRange = rule.getMixLengthRange();
+            if (null != mixRange) {
+                // 最小混合长度
+                if (value.getMixLength() < mixRange[0]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", mixRange[0]));
+                }
+                // 最大混合长度
+                if (value.getMixLength() > mixRange[1]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", mixRange[1]));
+                }
+            }
+            int[] byteRange = rule.getByteLengthRange();
+            if (null != byteRange) {
+                // 最小字节长度
+                if (value.getByteLength(rule.getCharset()) < byteRange[0]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MIN_LENGTH, val, rule.getLengthMsg(), feildName, "最小", byteRange[0]));
+                }
+                // 最大字节长度
+                if (value.getByteLength(rule.getCharset()) > byteRange[1]) {
+                    violations.add(new CheckViolation(path, feildName, CheckRule.MAX_LENGTH, val, rule.getLengthMsg(), feildName, "最大", byteRange[1]));
+                }
+            }
+        } // end min&max length check
+    }
 
-                // 多个lengthCheck
-                String testStr = testList.stream().collect(Collectors.joining(",")).toLowerCase();
-                int[] lenRange = req.lengthRange();
-                int[] mixRange = req.mixLengthRange();
-                if (testStr.contains("minlength") && testStr.contains("maxlength")) {
-                    // 空值跳过
-                    if (!req.nullSkip()) {
-                        if (null != lenRange && lenRange.length >= 2) {
-                            // 最小长度
-                            if (ConverterUtil.toString(val, "").length() < lenRange[0]) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最小", lenRange[0]));
-                            }
-                            // 最大长度
-                            if (ConverterUtil.toString(val, "").length() > lenRange[1]) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最大", lenRange[1]));
-                            }
-                        }
-                    }
-                    // 空值跳过
-                    if (!req.nullSkip()) {
-                        if (null != mixRange && mixRange.length >= 2) {
-                            // 最小混合长度
-                            if (ConverterUtil.getMixLength(ConverterUtil.toString(val, "")) < mixRange[0]) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最小", mixRange[0]));
-                            }
-                            // 最大混合长度
-                            if (ConverterUtil.getMixLength(ConverterUtil.toString(val, "")) > mixRange[1]) {
-                                errorMsg.add(MessageFormat.format(req.lengthMsg(), feildName, "最大", mixRange[1]));
-                            }
-                        }
-                    }
-                } // end min&max length check
-
-            } // end tests not empty
-        } // end ConverterUtil.isNotEmpty(req) if
-        return errorMsg;
+    /**
+     * 按编译后的校验规则校验 遇到第一个不通过的校验就返回，不生成校验消息
+     * 
+     * @param feildName
+     *            名称
+     * @param val
+     *            值
+     * @param rule
+     *            校验规则
+     * @param context
+     *            上下文 没有逻辑校验时可以为空
+     * @return
+     */
+    public static boolean isValid(String feildName, Object val, CheckRule rule, EvaluationContext context) {
+        if (null == rule) {
+            return true;
+        }
+        // 不创建CheckValue 字符串和长度在这里计算一次，校验通过时不创建对象(值本身的toString除外)
+        String str = rule.needsString() ? EmptyChecker.toString(val) : null;
+        int mix = rule.hasMixLength() ? StringMetrics.mixLength(str) : 0;
+        int bytes = rule.hasByteLength() ? StringMetrics.byteLength(str, rule.getCharset()) : 0;
+        int length = rule.getLength();
+        int mixLength = rule.getMixLength();
+        int byteLength = rule.getByteLength();
+        int[] tests = rule.getTests();
+        for (int i = 0; i < tests.length; i++) {
+            switch (tests[i]) {
+            case CheckRule.REQUIRED:
+                if (EmptyChecker.isEmpty(val)) {
+                    return false;
+                }
+                break;
+            case CheckRule.LENGTH:
+                if ((length > 0 && str.length() != length) || (mixLength > 0 && mix != mixLength) || (byteLength > 0 && bytes != byteLength)) {
+                    return false;
+                }
+                break;
+            case CheckRule.MIN_LENGTH:
+                if ((length > 0 && str.length() < length) || (mixLength > 0 && mix < mixLength) || (byteLength > 0 && bytes < byteLength)) {
+                    return false;
+                }
+                break;
+            case CheckRule.MAX_LENGTH:
+                if ((length > 0 && str.length() > length) || (mixLength > 0 && mix > mixLength) || (byteLength > 0 && bytes > byteLength)) {
+                    return false;
+                }
+                break;
+            case CheckRule.LIVEABLE:
+                if (null != rule.getLiveables() && !rule.getLiveableSet().contains(val)) {
+                    return false;
+                }
+                break;
+            case CheckRule.REGEX:
+                if (null != rule.getRegex() && !rule.matches(str)) {
+                    return false;
+                }
+                break;
+            case CheckRule.LOGIC:
+                if (!logicCheck(feildName, rule.getLogic(), context)) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        if (rule.isRange()) {
+            int[] lenRange = rule.getLengthRange();
+            if (null != lenRange && (str.length() < lenRange[0] || str.length() > lenRange[1])) {
+                return false;
+            }
+            int[] mixRange = rule.getMixLengthRange();
+            if (null != mixRange && (mix < mixRange[0] || mix > mixRange[1])) {
+                return false;
+            }
+            int[] byteRange = rule.getByteLengthRange();
+            if (null != byteRange && (bytes < byteRange[0] || bytes > byteRange[1])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -579,16 +1232,42 @@ public class DataCheckUtil {
      * @return
      */
     public static List<String> checkOneField(String feildName, Object val, Check req) {
-        EvaluationContext context = threadLocalContext.get();
-        // 如果上下文是空的则设置一个新的
-        if (null == context) {
-            context = new StandardEvaluationContext();
-            // 为上下文设置全局函数
-            setEvaluationContextCommonMethods((StandardEvaluationContext) context);
-            // 上下文中包含自己
-            context.setVariable(feildName, val);
+        List<CheckViolation> violations = Lists.newArrayList();
+        checkField(feildName, val, CheckRule.cached(req), null, null, violations);
+        return toMessages(violations, null);
+    }
+
+    /**
+     * 校验一个field 没有校验上下文时创建只包含自己和全局函数的上下文
+     * 
+     * @param feildName
+     *            属性名
+     * @param val
+     *            值
+     * @param rule
+     *            编译后的校验规则
+     * @param session
+     *            所在对象的会话 可以为空
+     * @param path
+     *            所在对象的路径
+     * @param violations
+     *            校验不通过的信息
+     */
+    private static void checkField(String feildName, Object val, CheckRule rule, CheckSession session, PathNode path, List<CheckViolation> violations) {
+        // 只有逻辑校验才需要上下文
+        EvaluationContext context = null;
+        if (null != rule && rule.hasLogic()) {
+            context = null == session ? null : session.getContext();
+            // 如果上下文是空的则设置一个新的
+            if (null == context) {
+                // 上下文中包含自己和全局函数
+                context = new CheckEvaluationContext(null, Collections.singletonMap(feildName, val), getFunctionRegistry());
+            }
+        }
+        checkRule(feildName, val, rule, context, path, violations);
+        if (null != session && null != context) {
+            session.reach(rule.getParentReach());
         }
-        return checkOneField(feildName, val, req, context);
     }
 
     /**
@@ -598,17 +1277,29 @@ public class DataCheckUtil {
      * @return
      */
     public static boolean logicCheck(String feildName, Check req, EvaluationContext context) {
-        String spel = req.logic();
+        return logicCheck(feildName, req.logic(), context);
+    }
+
+    /**
+     * 进行逻辑校验
+     * 
+     * @param feildName
+     *            属性名
+     * @param spel
+     *            逻辑表达式
+     * @param context
+     *            上下文
+     * @return
+     */
+    public static boolean logicCheck(String feildName, String spel, EvaluationContext context) {
         if (ConverterUtil.isNotEmpty(spel)) {
             if (null == context) {
                 logger.error("Error dataCheck field = {{}} with logic = {{}}, beacuse there is no context", feildName, spel);
                 return false;
             }
             try {
-                // 构建解析器
-                ExpressionParser parser = new SpelExpressionParser();
-                // 进行表达式校验
-                return parser.parseExpression(spel).getValue(context, Boolean.class);
+                // 进行表达式校验 解析后的表达式按字符串缓存
+                return ExpressionCache.getValue(spel, context);
             } catch (Exception e) {
                 logger.debug("exception in DataCheck with logic", e);
                 return true;
@@ -0,0 +1,562 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * 日期格式
+ * <p/>
+ * 按格式缓存编译后的日期格式，不可修改，可以在多个线程中同时使用。结果与每次new SimpleDateFormat(pattern)完全一致。<br/>
+ * 格式只包含y、M、MM、d、H、h、m、s、S和文字时直接从毫秒数计算年月日时分秒并写入StringBuilder，<br/>
+ * 其他格式、1600年以前或9999年以后的日期、默认Locale不使用公历或阿拉伯数字时使用SimpleDateFormat。<br/>
+ * 解析时每个线程复用一个SimpleDateFormat，并使用当前的默认时区。
+ * <p/>
+ * parseDefault按ConverterUtil.toDate(String)支持的六种格式扫描一次字符串并直接计算日期，<br/>
+ * 多个空白字符、DST切换前后等少见的情况仍然按原来的正则和SimpleDateFormat处理。
+ */
+public final class DateFormatter {
+    /** 默认容量 */
+    private static final int MAXIMUM_SIZE = 256;
+
+    /** 一天的毫秒数 */
+    private static final long DAY = 86400000L;
+
+    /** 直接计算的最小年份 之前的日期使用儒略历 */
+    private static final int MIN_YEAR = 1600;
+
+    /** 直接计算的最大年份 */
+    private static final int MAX_YEAR = 9999;
+
+    /** 缓存 */
+    private static final LoadingCache<String, DateFormatter> CACHE = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build(new CacheLoader<String, DateFormatter>() {
+        @Override
+        public DateFormatter load(String pattern) {
+            return new DateFormatter(pattern);
+        }
+    });
+
+    /** ConverterUtil.toDate(String)支持的格式 与正则一一对应 */
+    private static final String[] LAYOUTS = { "yyyy-MM-dd", ConverterUtil.FORMATE_DATE, "yyyy-MM-dd HH:mm:ss", ConverterUtil.FORMATE_DATE_TIME_24H, "yyyy-MM-dd HH:mm:ss.SSS",
+            ConverterUtil.FORMATE_TIME_STAMP_24H };
+
+    /** 与LAYOUTS对应的正则 */
+    private static final Pattern[] LAYOUT_REGEX = { Pattern.compile(ConverterUtil.REGEX_DATE_MIDDELLINE), Pattern.compile(ConverterUtil.REGEX_DATE_BACKSLASH),
+            Pattern.compile(ConverterUtil.REGEX_DATE_TIME_MIDDELLINE), Pattern.compile(ConverterUtil.REGEX_DATE_TIME_BACKSLASH), Pattern.compile(ConverterUtil.REGEX_TIME_STAMP_MIDDELLINE),
+            Pattern.compile(ConverterUtil.REGEX_TIME_STAMP_BACKSLASH) };
+
+    /** 最近一次检查的默认Locale */
+    private static volatile LocaleSupport localeSupport = new LocaleSupport(null, false);
+
+    /** 格式 */
+    private final String pattern;
+
+    /** 编译后的格式 字母为格式字符，其他为文字 */
+    private final char[] letters;
+
+    /** 格式字符的个数 */
+    private final int[] counts;
+
+    /** 文字 */
+    private final String[] literals;
+
+    /** 是否可以直接计算 */
+    private final boolean direct;
+
+    /** 是否可以复用解析用的SimpleDateFormat 两位年份的起始年份与创建时间有关，不复用 */
+    private final boolean reusable;
+
+    /** 每个线程解析用的SimpleDateFormat */
+    private final ThreadLocal<Parser> parsers = new ThreadLocal<>();
+
+    private DateFormatter(String pattern) {
+        // 格式不正确时抛出与SimpleDateFormat相同的异常
+        new SimpleDateFormat(pattern);
+        this.pattern = pattern;
+        List<Character> letterList = Lists.newArrayList();
+        List<Integer> countList = Lists.newArrayList();
+        List<String> literalList = Lists.newArrayList();
+        boolean supported = true;
+        boolean shortYear = false;
+        int len = pattern.length();
+        for (int i = 0; i < len;) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                // 引号中的文字 ''为一个引号
+                StringBuilder text = new StringBuilder();
+                if (i + 1 < len && pattern.charAt(i + 1) == '\'') {
+                    text.append('\'');
+                    i += 2;
+                } else {
+                    i++;
+                    while (i < len) {
+                        char q = pattern.charAt(i);
+                        if (q == '\'') {
+                            if (i + 1 < len && pattern.charAt(i + 1) == '\'') {
+                                text.append('\'');
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        text.append(q);
+                        i++;
+                    }
+                }
+                addLiteral(letterList, countList, literalList, text.toString());
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                int count = 1;
+                while (i + count < len && pattern.charAt(i + count) == c) {
+                    count++;
+                }
+                letterList.add(c);
+                countList.add(count);
+                literalList.add(null);
+                supported &= isDirectLetter(c, count);
+                shortYear |= c == 'y' && count <= 2;
+                i += count;
+            } else {
+                addLiteral(letterList, countList, literalList, String.valueOf(c));
+                i++;
+            }
+        }
+        this.letters = new char[letterList.size()];
+        this.counts = new int[letterList.size()];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = letterList.get(i);
+            counts[i] = countList.get(i);
+        }
+        this.literals = literalList.toArray(new String[literalList.size()]);
+        this.direct = supported;
+        this.reusable = !shortYear;
+    }
+
+    private static void addLiteral(List<Character> letterList, List<Integer> countList, List<String> literalList, String text) {
+        int last = literalList.size() - 1;
+        if (last >= 0 && null != literalList.get(last)) {
+            // 连续的文字合并
+            literalList.set(last, literalList.get(last) + text);
+        } else {
+            letterList.add('\0');
+            countList.add(0);
+            literalList.add(text);
+        }
+    }
+
+    /**
+     * 是否可以直接计算 月份只支持数字
+     */
+    private static boolean isDirectLetter(char c, int count) {
+        switch (c) {
+        case 'y':
+        case 'd':
+        case 'H':
+        case 'h':
+        case 'm':
+        case 's':
+        case 'S':
+            return true;
+        case 'M':
+            return count <= 2;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * 取得日期格式
+     *
+     * @param pattern
+     *            格式
+     * @return
+     * @throws IllegalArgumentException
+     *             格式不正确时
+     */
+    public static DateFormatter of(String pattern) {
+        try {
+            return CACHE.getUnchecked(pattern);
+        } catch (UncheckedExecutionException e) {
+            // 与直接new SimpleDateFormat抛出相同的异常
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 格式化
+     *
+     * @param date
+     *            日期
+     * @return 与new SimpleDateFormat(pattern).format(date)一致
+     */
+    public String format(Date date) {
+        return formatTo(date, new StringBuilder(pattern.length() + 8)).toString();
+    }
+
+    /**
+     * 格式化并添加到StringBuilder中
+     *
+     * @param date
+     *            日期
+     * @param sb
+     *            输出
+     * @return sb
+     */
+    public StringBuilder formatTo(Date date, StringBuilder sb) {
+        long millis = date.getTime();
+        if (direct && isDirectLocale()) {
+            long local = millis + TimeZone.getDefault().getOffset(millis);
+            long epochDay = Math.floorDiv(local, DAY);
+            int[] ymd = civil(epochDay);
+            if (ymd[0] >= MIN_YEAR && ymd[0] <= MAX_YEAR) {
+                int ms = (int) Math.floorMod(local, DAY);
+                appendFields(sb, ymd, ms);
+                return sb;
+            }
+        }
+        return sb.append(new SimpleDateFormat(pattern).format(date));
+    }
+
+    private void appendFields(StringBuilder sb, int[] ymd, int ms) {
+        for (int i = 0; i < letters.length; i++) {
+            int count = counts[i];
+            switch (letters[i]) {
+            case 'y':
+                if (count == 2) {
+                    pad(sb, ymd[0] % 100, 2);
+                } else {
+                    pad(sb, ymd[0], count);
+                }
+                break;
+            case 'M':
+                pad(sb, ymd[1], count);
+                break;
+            case 'd':
+                pad(sb, ymd[2], count);
+                break;
+            case 'H':
+                pad(sb, ms / 3600000, count);
+                break;
+            case 'h':
+                int hour = ms / 3600000 % 12;
+                pad(sb, hour == 0 ? 12 : hour, count);
+                break;
+            case 'm':
+                pad(sb, ms / 60000 % 60, count);
+                break;
+            case 's':
+                pad(sb, ms / 1000 % 60, count);
+                break;
+            case 'S':
+                pad(sb, ms % 1000, count);
+                break;
+            default:
+                sb.append(literals[i]);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 补0到指定位数
+     */
+    private static void pad(StringBuilder sb, int value, int digits) {
+        int width = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : value < 10000 ? 4 : String.valueOf(value).length();
+        for (int i = width; i < digits; i++) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    /**
+     * 解析
+     *
+     * @param text
+     *            字符串
+     * @return 与new SimpleDateFormat(pattern).parse(text)一致
+     * @throws ParseException
+     */
+    public Date parse(String text) throws ParseException {
+        if (!reusable) {
+            return new SimpleDateFormat(pattern).parse(text);
+        }
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Parser parser = parsers.get();
+        if (null == parser || !parser.locale.equals(locale)) {
+            parser = new Parser(locale, new SimpleDateFormat(pattern, locale));
+            parsers.set(parser);
+        }
+        // 与新创建时一样使用当前的默认时区
+        parser.format.setTimeZone(TimeZone.getDefault());
+        return parser.format.parse(text);
+    }
+
+    /**
+     * 按ConverterUtil.toDate(String)支持的六种格式解析
+     *
+     * @param str
+     *            字符串
+     * @return 不在六种格式之内时返回null
+     * @throws ParseException
+     */
+    public static Date parseDefault(String str) throws ParseException {
+        Date date = scan(str);
+        if (null != date) {
+            return date;
+        }
+        for (int i = 0; i < LAYOUT_REGEX.length; i++) {
+            if (LAYOUT_REGEX[i].matcher(str).find()) {
+                return of(LAYOUTS[i]).parse(str);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 扫描一次字符串并直接计算日期
+     *
+     * @return 不是六种格式之一的标准写法(日期和时间之间一个空格)或不能直接计算时返回null
+     */
+    private static Date scan(String str) {
+        int len = str.length();
+        // yyyy-M-d
+        if (len < 8 || !isDigits(str, 0, 4)) {
+            return null;
+        }
+        char sep = str.charAt(4);
+        if (sep != '-' && sep != '/') {
+            return null;
+        }
+        int year = number(str, 0, 4);
+        int pos = 5;
+        int monthEnd = digitsEnd(str, pos);
+        if (!isMonth(str, pos, monthEnd) || monthEnd >= len || str.charAt(monthEnd) != sep) {
+            return null;
+        }
+        int month = number(str, pos, monthEnd);
+        pos = monthEnd + 1;
+        int dayEnd = digitsEnd(str, pos);
+        if (!isDay(str, pos, dayEnd)) {
+            return null;
+        }
+        int day = number(str, pos, dayEnd);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int milli = 0;
+        pos = dayEnd;
+        if (pos < len) {
+            // HH:mm:ss 小时为正则\d([0-1][0-9]|2?[0-3])
+            if (str.charAt(pos) != ' ') {
+                return null;
+            }
+            pos++;
+            int hourEnd = digitsEnd(str, pos);
+            if (!isHour(str, pos, hourEnd) || hourEnd + 6 > len || str.charAt(hourEnd) != ':' || str.charAt(hourEnd + 3) != ':' || !isSexagesimal(str, hourEnd + 1)
+                    || !isSexagesimal(str, hourEnd + 4)) {
+                return null;
+            }
+            hour = number(str, pos, hourEnd);
+            minute = number(str, hourEnd + 1, hourEnd + 3);
+            second = number(str, hourEnd + 4, hourEnd + 6);
+            pos = hourEnd + 6;
+            if (pos < len) {
+                // .SSS
+                if (pos + 4 != len || str.charAt(pos) != '.' || !isDigits(str, pos + 1, 3)) {
+                    return null;
+                }
+                milli = number(str, pos + 1, len);
+            }
+        }
+        if (year < MIN_YEAR || !isDirectLocale()) {
+            return null;
+        }
+        // 宽松模式 日和小时超出范围时顺延
+        long local = days(year, month, 1) * DAY + (day - 1) * DAY + hour * 3600000L + minute * 60000L + second * 1000L + milli;
+        TimeZone zone = TimeZone.getDefault();
+        int offset = zone.getOffset(local - zone.getRawOffset());
+        // 前后一天内有时区切换时交给Calendar处理
+        if (zone.getOffset(local - offset) != offset || zone.getOffset(local - offset - DAY) != offset || zone.getOffset(local - offset + DAY) != offset) {
+            return null;
+        }
+        return new Date(local - offset);
+    }
+
+    private static boolean isDigits(String str, int from, int count) {
+        if (from + count > str.length()) {
+            return false;
+        }
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(str.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digitsEnd(String str, int from) {
+        int end = from;
+        while (end < str.length() && isDigit(str.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int number(String str, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (str.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 正则(0?[1-9]|[1][012])
+     */
+    private static boolean isMonth(String str, int from, int to) {
+        if (to - from == 1) {
+            return str.charAt(from) != '0';
+        }
+        if (to - from == 2) {
+            char c0 = str.charAt(from);
+            char c1 = str.charAt(from + 1);
+            return (c0 == '0' && c1 != '0') || (c0 == '1' && c1 <= '2');
+        }
+        return false;
+    }
+
+    /**
+     * 正则(0?[1-9]|[12][0-9]|[3][01])
+     */
+    private static boolean isDay(String str, int from, int to) {
+        if (to - from == 1) {
+            return str.charAt(from) != '0';
+        }
+        if (to - from == 2) {
+            char c0 = str.charAt(from);
+            char c1 = str.charAt(from + 1);
+            return (c0 == '0' && c1 != '0') || c0 == '1' || c0 == '2' || (c0 == '3' && c1 <= '1');
+        }
+        return false;
+    }
+
+    /**
+     * 正则\d([0-1][0-9]|2?[0-3])
+     */
+    private static boolean isHour(String str, int from, int to) {
+        if (to - from == 2) {
+            return str.charAt(from + 1) <= '3';
+        }
+        if (to - from == 3) {
+            char c1 = str.charAt(from + 1);
+            char c2 = str.charAt(from + 2);
+            return c1 == '0' || c1 == '1' || (c1 == '2' && c2 <= '3');
+        }
+        return false;
+    }
+
+    /**
+     * 正则[0-5][0-9]
+     */
+    private static boolean isSexagesimal(String str, int from) {
+        char c0 = str.charAt(from);
+        return c0 >= '0' && c0 <= '5' && isDigit(str.charAt(from + 1));
+    }
+
+    /**
+     * 默认Locale是否使用公历和阿拉伯数字
+     */
+    private static boolean isDirectLocale() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        LocaleSupport support = localeSupport;
+        if (!locale.equals(support.locale)) {
+            NumberFormat number = NumberFormat.getIntegerInstance(locale);
+            boolean supported = Calendar.getInstance(locale).getClass() == GregorianCalendar.class && number instanceof DecimalFormat
+                    && ((DecimalFormat) number).getDecimalFormatSymbols().getZeroDigit() == '0';
+            support = new LocaleSupport(locale, supported);
+            localeSupport = support;
+        }
+        return support.supported;
+    }
+
+    /**
+     * 1970-01-01起的天数 -> 年月日
+     */
+    private static int[] civil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[] { year, month, day };
+    }
+
+    /**
+     * 年月日 -> 1970-01-01起的天数
+     */
+    private static long days(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * 检查过的Locale
+     */
+    private static final class LocaleSupport {
+        final Locale locale;
+
+        final boolean supported;
+
+        LocaleSupport(Locale locale, boolean supported) {
+            this.locale = locale;
+            this.supported = supported;
+        }
+    }
+
+    /**
+     * 一个线程解析用的SimpleDateFormat
+     */
+    private static final class Parser {
+        final Locale locale;
+
+        final SimpleDateFormat format;
+
+        Parser(Locale locale, SimpleDateFormat format) {
+            this.locale = locale;
+            this.format = format;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+/**
+ * 空值判断
+ * <p/>
+ * 校验引擎(required、nullSkip、级联校验的对象)和逻辑校验的isEmpty、isNotEmpty、isOrEmpty函数使用。<br/>
+ * 按类型判断，不调用toString:<br/>
+ * 字符串和CharSequence为""、"null"或"[]"时为空(与ConverterUtil.isEmpty一致)，数组、Collection、Map没有元素时为空，<br/>
+ * Optional、OptionalInt等没有值时为空，数值、Boolean、Character、枚举、日期和其他对象(实体)不为空。
+ * <p/>
+ * 开启兼容模式(datacheck.legacy-empty-check=true)时与ConverterUtil.isEmpty完全一致，<br/>
+ * 其他对象按toString的结果判断，基本类型的数组和Optional不为空。
+ */
+public final class EmptyChecker {
+    /** 是否使用ConverterUtil.isEmpty的判断方式 */
+    private static volatile boolean legacy;
+
+    private EmptyChecker() {
+    }
+
+    /**
+     * 设置兼容模式
+     *
+     * @param legacy
+     *            true:与ConverterUtil.isEmpty一致,false:按类型判断(默认)
+     */
+    public static void setLegacy(boolean legacy) {
+        EmptyChecker.legacy = legacy;
+        // 缓存的校验结果可能变化
+        ResultCache.clear();
+    }
+
+    public static boolean isLegacy() {
+        return legacy;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @param obj
+     *            值
+     * @return
+     */
+    public static boolean isEmpty(Object obj) {
+        if (null == obj) {
+            return true;
+        }
+        if (obj instanceof String) {
+            return isEmptyText((String) obj);
+        }
+        if (legacy) {
+            return ConverterUtil.isEmpty(obj);
+        }
+        if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character || obj instanceof Enum) {
+            return false;
+        }
+        if (obj instanceof Collection) {
+            return ((Collection<?>) obj).isEmpty();
+        }
+        if (obj instanceof Map) {
+            return ((Map<?, ?>) obj).isEmpty();
+        }
+        if (obj instanceof CharSequence) {
+            return isEmptyText((CharSequence) obj);
+        }
+        if (obj instanceof Object[]) {
+            return ((Object[]) obj).length == 0;
+        }
+        if (obj.getClass().isArray()) {
+            // 基本类型的数组
+            return Array.getLength(obj) == 0;
+        }
+        if (obj instanceof Optional) {
+            return !((Optional<?>) obj).isPresent();
+        }
+        if (obj instanceof OptionalInt) {
+            return !((OptionalInt) obj).isPresent();
+        }
+        if (obj instanceof OptionalLong) {
+            return !((OptionalLong) obj).isPresent();
+        }
+        if (obj instanceof OptionalDouble) {
+            return !((OptionalDouble) obj).isPresent();
+        }
+        // 实体等其他对象
+        return false;
+    }
+
+    /**
+     * ""、"null"和"[]"为空
+     */
+    private static boolean isEmptyText(CharSequence str) {
+        switch (str.length()) {
+        case 0:
+            return true;
+        case 2:
+            return str.charAt(0) == '[' && str.charAt(1) == ']';
+        case 4:
+            return str.charAt(0) == 'n' && str.charAt(1) == 'u' && str.charAt(2) == 'l' && str.charAt(3) == 'l';
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * 是否不为空
+     *
+     * @param obj
+     *            值
+     * @return
+     */
+    public static boolean isNotEmpty(Object obj) {
+        return !isEmpty(obj);
+    }
+
+    /**
+     * 是否都为空 逻辑校验的isEmpty函数
+     *
+     * @param objs
+     *            值
+     * @return 没有值时返回true
+     */
+    public static boolean isEmpty(Object... objs) {
+        if (null == objs || 0 == objs.length) {
+            return true;
+        }
+        for (Object obj : objs) {
+            if (!isEmpty(obj)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否有一个为空 逻辑校验的isOrEmpty函数
+     *
+     * @param objs
+     *            值
+     * @return 没有值时返回false
+     */
+    public static boolean isOrEmpty(Object... objs) {
+        for (Object obj : objs) {
+            if (isEmpty(obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否都不为空 逻辑校验的isNotEmpty函数
+     *
+     * @param objs
+     *            值
+     * @return 没有值时返回false
+     */
+    public static boolean isNotEmpty(Object... objs) {
+        if (null == objs || 0 == objs.length) {
+            return false;
+        }
+        for (Object obj : objs) {
+            if (isEmpty(obj)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 校验用的字符串
+     *
+     * @param obj
+     *            值
+     * @return 为空时返回""，否则与ConverterUtil.toString(obj)一致
+     */
+    public static String toString(Object obj) {
+        return isEmpty(obj) ? "" : ConverterUtil.toString(obj);
+    }
+}
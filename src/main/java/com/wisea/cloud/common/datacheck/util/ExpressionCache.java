@@ -0,0 +1,221 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * 逻辑表达式缓存
+ * <p/>
+ * 按表达式字符串缓存解析后的Expression，避免每次校验都重新解析。<br/>
+ * 可选开启SpEL编译(SpelCompilerMode.IMMEDIATE/MIXED)，将频繁使用的表达式编译成字节码，<br/>
+ * 编译失败或编译后执行失败时回退到解释执行，校验结果不变，失败次数通过统计信息查看。
+ */
+public final class ExpressionCache {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(ExpressionCache.class);
+
+    /** 默认容量 */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /** 解释执行的解析器 */
+    private static final SpelExpressionParser INTERPRETED_PARSER = new SpelExpressionParser();
+
+    /** 编译成功次数 */
+    private static final AtomicLong compiledCount = new AtomicLong();
+
+    /** 编译失败次数 */
+    private static final AtomicLong compileFailureCount = new AtomicLong();
+
+    /** 编译后执行失败次数 */
+    private static final AtomicLong compiledRunFailureCount = new AtomicLong();
+
+    /** 编译模式 */
+    private static volatile SpelCompilerMode compilerMode = SpelCompilerMode.OFF;
+
+    /** 容量 */
+    private static volatile long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /** 缓存 */
+    private static volatile LoadingCache<String, CachedExpression> cache = build();
+
+    private ExpressionCache() {
+    }
+
+    private static LoadingCache<String, CachedExpression> build() {
+        SpelCompilerMode mode = compilerMode;
+        SpelExpressionParser parser = SpelCompilerMode.OFF == mode ? INTERPRETED_PARSER : new SpelExpressionParser(new SpelParserConfiguration(mode, null));
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build(new CacheLoader<String, CachedExpression>() {
+            @Override
+            public CachedExpression load(String spel) {
+                return new CachedExpression(spel, parser.parseExpression(spel), mode);
+            }
+        });
+    }
+
+    /**
+     * 执行逻辑表达式
+     *
+     * @param spel
+     *            逻辑表达式
+     * @param context
+     *            上下文
+     * @return 表达式的值
+     * @throws org.springframework.expression.ExpressionException
+     *             表达式解析或执行出错时
+     */
+    public static Boolean getValue(String spel, EvaluationContext context) {
+        return cache.getUnchecked(spel).getValue(context);
+    }
+
+    /**
+     * 取得缓存的统计信息(命中、未命中、淘汰次数等)
+     *
+     * @return
+     */
+    public static CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 编译成功的表达式数量
+     *
+     * @return
+     */
+    public static long getCompiledCount() {
+        return compiledCount.get();
+    }
+
+    /**
+     * 编译失败的表达式数量
+     *
+     * @return
+     */
+    public static long getCompileFailureCount() {
+        return compileFailureCount.get();
+    }
+
+    /**
+     * 编译后执行失败并回退到解释执行的次数
+     *
+     * @return
+     */
+    public static long getCompiledRunFailureCount() {
+        return compiledRunFailureCount.get();
+    }
+
+    public static SpelCompilerMode getCompilerMode() {
+        return compilerMode;
+    }
+
+    /**
+     * 设置编译模式 会清空当前缓存
+     *
+     * @param mode
+     *            为空时不编译(OFF)
+     */
+    public static synchronized void setCompilerMode(SpelCompilerMode mode) {
+        compilerMode = null == mode ? SpelCompilerMode.OFF : mode;
+        cache = build();
+    }
+
+    /**
+     * 设置缓存容量 会清空当前缓存
+     *
+     * @param size
+     *            容量 小于等于0时使用默认容量
+     */
+    public static synchronized void setMaximumSize(long size) {
+        maximumSize = size > 0 ? size : DEFAULT_MAXIMUM_SIZE;
+        cache = build();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存的表达式
+     */
+    private static final class CachedExpression {
+        /** 表达式字符串 */
+        private final String spel;
+
+        /** 编译模式 */
+        private final SpelCompilerMode mode;
+
+        /** 表达式 编译后执行失败时替换成解释执行的表达式 */
+        private volatile Expression expression;
+
+        /** 执行次数 达到SpEL的编译时机后记录一次编译结果 */
+        private volatile int evaluatedCount = 0;
+
+        /** 是否已经记录编译结果 */
+        private volatile boolean compileRecorded;
+
+        CachedExpression(String spel, Expression expression, SpelCompilerMode mode) {
+            this.spel = spel;
+            this.expression = expression;
+            this.mode = mode;
+            this.compileRecorded = SpelCompilerMode.OFF == mode || !(expression instanceof SpelExpression);
+        }
+
+        Boolean getValue(EvaluationContext context) {
+            Expression current = expression;
+            Boolean value;
+            try {
+                value = current.getValue(context, Boolean.class);
+            } catch (SpelEvaluationException e) {
+                if (e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+                    throw e;
+                }
+                // IMMEDIATE模式下编译后的代码执行失败(例如上下文中的类型发生变化)，改为解释执行
+                compiledRunFailureCount.incrementAndGet();
+                logger.warn("compiled logic {{}} failed, fall back to interpreted mode: {}", spel, e.getMessage());
+                current = INTERPRETED_PARSER.parseExpression(spel);
+                expression = current;
+                compileRecorded = true;
+                value = current.getValue(context, Boolean.class);
+            }
+            if (!compileRecorded) {
+                recordCompile(current);
+            }
+            return value;
+        }
+
+        /**
+         * 在SpEL尝试编译之后记录编译结果
+         */
+        private void recordCompile(Expression current) {
+            int count = ++evaluatedCount;
+            int threshold = SpelCompilerMode.IMMEDIATE == mode ? 2 : 101;
+            if (count >= threshold) {
+                compileRecorded = true;
+                // 已经编译过时直接返回true
+                if (((SpelExpression) current).compileExpression()) {
+                    compiledCount.incrementAndGet();
+                } else {
+                    compileFailureCount.incrementAndGet();
+                    logger.info("logic {{}} can not be compiled, keep interpreted mode.", spel);
+                }
+            }
+        }
+    }
+}
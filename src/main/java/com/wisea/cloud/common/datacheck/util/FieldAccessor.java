@@ -0,0 +1,248 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 属性访问器
+ * <p/>
+ * 每个Class生成一个BeanAccess(AccessorGenerator)，public属性直接读写，private属性调用只读写该属性的getter/setter，<br/>
+ * 生成的代码中属性和方法都是常量，JIT可以把getter和访问类一起内联，只剩按下标的分支和属性读取<br/>
+ * (JDK 17上交替读取3个属性实测约4ns/次，Field.get约5-6ns/次，手写的switch直接读取约2ns/次)。<br/>
+ * 不能生成的属性(没有简单的getter/setter的private属性、static属性等)以及实体是子类的实例时，<br/>
+ * 使用MethodHandle读写，MethodHandle的类型统一适配为(Object)Object和(Object,Object)void，速度与Field.get相当。<br/>
+ * 每个Class的访问器只构建一次，校验和拷贝时不再重复取得属性列表、调用setAccessible。
+ */
+public final class FieldAccessor {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(FieldAccessor.class);
+
+    /** 访问器缓存 保存在各个Class中，不会阻止类和ClassLoader被卸载，每个Class只构建一次 */
+    private static final ClassCache<List<FieldAccessor>> ACCESSOR_CACHE = new ClassCache<>(FieldAccessor::build);
+
+    /** 统一的getter类型 */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** 统一的setter类型 */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** 属性名 */
+    private final String name;
+
+    /** 属性 */
+    private final Field field;
+
+    /** getter (Object)Object */
+    private final MethodHandle getter;
+
+    /** setter (Object,Object)void 不可写时为null */
+    private final MethodHandle setter;
+
+    /** 生成访问类时的实体类 只有该类的实例使用生成的访问类 */
+    private final Class<?> owner;
+
+    /** 生成的访问类 */
+    private final BeanAccess access;
+
+    /** 属性在生成的访问类中的下标 */
+    private final int index;
+
+    /** 是否通过生成的访问类读取 */
+    private final boolean generatedGet;
+
+    /** 是否通过生成的访问类写入 */
+    private final boolean generatedSet;
+
+    /** 生成的访问类读取属性时调用的getter 直接读取属性时为null */
+    private final Method simpleGetter;
+
+    private FieldAccessor(Field field, Class<?> owner, BeanAccess access, int index, AccessorGenerator generator) throws IllegalAccessException {
+        this.owner = owner;
+        this.access = access;
+        this.index = index;
+        this.generatedGet = null != access && generator.isReadable(index);
+        this.generatedSet = null != access && generator.isWritable(index);
+        this.simpleGetter = generator.getGetter(index);
+        this.name = field.getName();
+        this.field = field;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        boolean isStatic = Modifier.isStatic(field.getModifiers());
+        MethodHandle get = lookup.unreflectGetter(field);
+        if (isStatic) {
+            get = MethodHandles.dropArguments(get, 0, Object.class);
+        }
+        this.getter = get.asType(GETTER_TYPE);
+        MethodHandle set = null;
+        try {
+            set = lookup.unreflectSetter(field);
+            if (isStatic) {
+                set = MethodHandles.dropArguments(set, 0, Object.class);
+            }
+            set = set.asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // final属性不能通过MethodHandle写入，使用Field.set处理
+            set = null;
+        }
+        this.setter = set;
+    }
+
+    /**
+     * 取得某类中所有属性(包括父类)的访问器
+     * <p/>
+     * 顺序与ConverterUtil.getAllFields一致，无法访问的属性(例如JDK模块内部的属性)会被跳过
+     * 
+     * @param clazz
+     *            类
+     * @return 不可修改的List
+     */
+    public static List<FieldAccessor> forClass(Class<?> clazz) {
+        return ACCESSOR_CACHE.get(clazz);
+    }
+
+    /**
+     * 取得某类中某个属性的访问器
+     * <p/>
+     * 子类与父类有同名属性时返回子类的属性
+     * 
+     * @param clazz
+     *            类
+     * @param name
+     *            属性名
+     * @return 没有找到时返回null
+     */
+    public static FieldAccessor forField(Class<?> clazz, String name) {
+        List<FieldAccessor> accessors = forClass(clazz);
+        for (int i = 0; i < accessors.size(); i++) {
+            if (accessors.get(i).getName().equals(name)) {
+                return accessors.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构建某类的访问器
+     * 
+     * @param clazz
+     * @return
+     */
+    private static List<FieldAccessor> build(Class<?> clazz) {
+        List<Field> fields = Lists.newArrayList();
+        for (Field field : ConverterUtil.getAllFields(clazz)) {
+            try {
+                field.setAccessible(true);
+                fields.add(field);
+            } catch (RuntimeException e) {
+                logger.debug("skip inaccessible field {}.{}", clazz.getName(), field.getName());
+            }
+        }
+        AccessorGenerator generator = AccessorGenerator.of(clazz, fields);
+        BeanAccess access = generator.generate();
+        List<FieldAccessor> accessors = Lists.newArrayList();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            try {
+                accessors.add(new FieldAccessor(field, clazz, access, i, generator));
+            } catch (IllegalAccessException | RuntimeException e) {
+                logger.debug("skip inaccessible field {}.{}", clazz.getName(), field.getName());
+            }
+        }
+        return Collections.unmodifiableList(accessors);
+    }
+
+    /**
+     * 取得属性的值
+     * 
+     * @param bean
+     *            实体
+     * @return
+     */
+    public Object get(Object bean) {
+        if (generatedGet && bean.getClass() == owner) {
+            return access.get(bean, index);
+        }
+        return getByHandle(bean);
+    }
+
+    /**
+     * 通过MethodHandle读取 与生成的访问类分开，get方法较小，调用处可以内联
+     */
+    private Object getByHandle(Object bean) {
+        try {
+            return (Object) getter.invokeExact(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 设置属性的值
+     * 
+     * @param bean
+     *            实体
+     * @param val
+     *            值
+     * @throws IllegalAccessException
+     *             属性不可写
+     */
+    public void set(Object bean, Object val) throws IllegalAccessException {
+        if (generatedSet && bean.getClass() == owner) {
+            access.set(bean, index, val);
+            return;
+        }
+        setByHandle(bean, val);
+    }
+
+    /**
+     * 通过MethodHandle写入 final属性使用Field.set
+     */
+    private void setByHandle(Object bean, Object val) throws IllegalAccessException {
+        if (null == setter) {
+            field.set(bean, val);
+            return;
+        }
+        try {
+            setter.invokeExact(bean, val);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * 取得只读取该属性的public getter
+     * <p/>
+     * 方法体只是读取该属性(aload_0 getfield xreturn)，调用结果与直接读取属性一致，生成的代码可以直接调用
+     * 
+     * @return 没有时返回null
+     */
+    public Method getSimpleGetter() {
+        return simpleGetter;
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+}
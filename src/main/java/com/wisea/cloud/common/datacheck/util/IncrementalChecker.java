@@ -0,0 +1,316 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.expression.EvaluationContext;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.entity.CheckViolation;
+import com.wisea.cloud.common.datacheck.entity.PathNode;
+import com.wisea.cloud.common.datacheck.exception.DataCheckException;
+import com.wisea.cloud.common.datacheck.plan.CheckEngineMode;
+import com.wisea.cloud.common.datacheck.plan.CheckPlan;
+import com.wisea.cloud.common.datacheck.plan.CheckRule;
+import com.wisea.cloud.common.datacheck.plan.DataChecker;
+import com.wisea.cloud.common.datacheck.plan.FieldPlan;
+
+/**
+ * 增量校验
+ * <p/>
+ * 适用于反复修改并校验同一个对象(例如编辑中的单据)的场景。每次校验成功后按对象地址记录每个属性的指纹和校验信息，<br/>
+ * 下一次校验时只重新执行值发生变化的属性的规则，以及引用了变化的属性的逻辑校验，其他属性直接复用上一次的校验信息。<br/>
+ * 级联对象和List中的元素逐个比较指纹，没有变化的对象不再执行任何规则。校验结果与DataCheckUtil.checkViolations一致。
+ * <p/>
+ * 属性的指纹为值本身(String、数值等不可变的值)或值的地址，以及值的hashCode，<br/>
+ * 值的hashCode不随内容变化的可变对象(例如没有重写hashCode的实体)作为不需要级联校验的属性时，修改其内容不会被发现，此时应使用reset或全量校验。<br/>
+ * 逻辑表达式调用了全局函数时每次都重新执行，引用了parent时上层对象有变化就重新执行。
+ * <p/>
+ * 记录按对象弱引用保存，对象被回收后自动删除。同一个实例不能同时校验。
+ */
+public class IncrementalChecker {
+    /** 上一次校验成功时每个对象的记录 */
+    private final Cache<Object, BeanState> states = CacheBuilder.newBuilder().weakKeys().build();
+
+    /** 最近一次校验重新执行规则的属性数 */
+    private int recheckedCount;
+
+    /** 最近一次校验复用校验信息的属性数 */
+    private int reusedCount;
+
+    /**
+     * 增量校验并返回校验不通过的信息
+     *
+     * @param data
+     *            entity
+     * @return 与DataCheckUtil.checkViolations(data)一致
+     */
+    public synchronized List<CheckViolation> checkViolations(Object data) {
+        List<CheckViolation> violations = Lists.newArrayList();
+        Visit visit = new Visit(DataCheckUtil.newRun());
+        try {
+            visit.collect(data, null, null, Integer.MAX_VALUE, violations);
+        } catch (DataCheckException e) {
+            throw e;
+        } catch (Exception e) {
+            // 与DataCheckUtil的异常处理一致
+            throw new RuntimeException(e);
+        }
+        // 校验成功后才保存本次的记录
+        states.putAll(visit.states);
+        recheckedCount = visit.rechecked;
+        reusedCount = visit.reused;
+        return violations;
+    }
+
+    /**
+     * 增量校验并返回校验消息
+     *
+     * @param data
+     *            entity
+     * @return 与DataCheckUtil.checkResultMsg(data)一致
+     */
+    public List<String> checkResultMsg(Object data) {
+        return DataCheckUtil.toMessages(checkViolations(data), null);
+    }
+
+    /**
+     * 删除某个对象的记录 下一次校验时重新执行该对象的全部规则
+     *
+     * @param data
+     *            对象
+     */
+    public void reset(Object data) {
+        states.invalidate(data);
+    }
+
+    /**
+     * 删除全部记录
+     */
+    public void resetAll() {
+        states.invalidateAll();
+    }
+
+    public synchronized int getRecheckedCount() {
+        return recheckedCount;
+    }
+
+    public synchronized int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * 一次增量校验
+     */
+    private final class Visit {
+        /** 本次校验的公共状态 */
+        private final CheckRun run;
+
+        /** 本次校验的记录 校验成功后保存 */
+        private final Map<Object, BeanState> states = new IdentityHashMap<>();
+
+        private int rechecked;
+
+        private int reused;
+
+        Visit(CheckRun run) {
+            this.run = run;
+        }
+
+        /**
+         * 与DataCheckUtil中的collect处理顺序一致
+         *
+         * @param data
+         *            entity
+         * @param parent
+         *            所在对象的会话 最外层为null
+         * @param path
+         *            data的路径 最外层为null
+         * @param dirtyDistance
+         *            到最近的有变化的上层对象的层数 没有时为Integer.MAX_VALUE
+         * @param violations
+         *            校验不通过的信息
+         */
+        void collect(Object data, CheckSession parent, PathNode path, int dirtyDistance, List<CheckViolation> violations) throws Exception {
+            if (DataCheckUtil.isEmptyData(data)) {
+                return;
+            }
+            if (data instanceof List) {
+                List<?> objList = (List<?>) data;
+                for (int i = 0; i < objList.size(); i++) {
+                    collect(objList.get(i), parent, PathNode.element(path, null, i), dirtyDistance, violations);
+                }
+            } else if (data instanceof Map) {
+                Map<?, ?> objMap = (Map<?, ?>) data;
+                for (Object key : objMap.keySet().toArray()) {
+                    collect(objMap.get(key), parent, PathNode.element(path, null, key), dirtyDistance, violations);
+                }
+            } else {
+                CheckSession session = null == parent ? CheckSession.root(data, run) : parent.child(data);
+                // 循环引用的对象已经在上层校验
+                if (session.isCycle()) {
+                    return;
+                }
+                run.enter(data, session.getDepth());
+                collectBean(data, session, path, dirtyDistance, violations);
+            }
+        }
+
+        private void collectBean(Object data, CheckSession session, PathNode path, int dirtyDistance, List<CheckViolation> violations) throws Exception {
+            CheckPlan plan = CheckPlan.forClass(data.getClass());
+            // 属性值已经取出，校验器只用来执行规则
+            DataChecker checker = plan.getCompiledChecker();
+            if (null == checker && CheckEngineMode.GENERATED == DataCheckUtil.getEngineMode()) {
+                checker = plan.getGeneratedChecker();
+            }
+            // 本次校验中已经出现过的对象在多处被引用，引用了parent的逻辑校验每处都重新执行
+            BeanState seen = states.get(data);
+            BeanState old = null != seen ? seen : IncrementalChecker.this.states.getIfPresent(data);
+            boolean shared = null != seen || (null != old && old.shared);
+
+            // 全部属性的指纹
+            List<FieldPlan> all = plan.getFields();
+            BeanState now = new BeanState(all.size(), plan.getCheckFields().size(), shared);
+            Object[] values = new Object[all.size()];
+            boolean[] changed = new boolean[all.size()];
+            boolean anyChanged = null == old;
+            for (int i = 0; i < changed.length; i++) {
+                Object val = all.get(i).getValue(data);
+                values[i] = val;
+                now.fingerprint(i, val);
+                changed[i] = null == old || old.isChanged(i, val);
+                anyChanged |= changed[i];
+            }
+            states.put(data, now);
+            int childDistance = anyChanged ? 1 : (Integer.MAX_VALUE == dirtyDistance ? dirtyDistance : dirtyDistance + 1);
+
+            List<FieldPlan> fields = plan.getCheckFields();
+            for (int f = 0; f < fields.size(); f++) {
+                FieldPlan fieldPlan = fields.get(f);
+                String feildName = fieldPlan.getName();
+                Object val = values[plan.getFieldIndex(f)];
+                if (val instanceof List) {
+                    List<?> objList = (List<?>) val;
+                    for (int i = 0; i < objList.size(); i++) {
+                        collect(objList.get(i), session, PathNode.element(path, feildName, i), childDistance, violations);
+                    }
+                    continue;
+                }
+                List<CheckViolation> own;
+                if (null == old || isDirty(plan, f, old, changed, dirtyDistance, shared)) {
+                    // 只有逻辑校验才需要上下文
+                    EvaluationContext context = fieldPlan.hasLogic() ? session.getContext() : null;
+                    own = Lists.newArrayListWithCapacity(1);
+                    if (null == checker) {
+                        DataCheckUtil.checkRule(feildName, val, fieldPlan.getRule(), context, null, own);
+                    } else {
+                        checker.checkField(f, val, null, own, context);
+                    }
+                    if (own.isEmpty()) {
+                        own = Collections.emptyList();
+                    }
+                    rechecked++;
+                } else {
+                    own = old.violations[f];
+                    reused++;
+                }
+                now.violations[f] = own;
+                // 记录中的路径从当前对象开始，输出时换成实际路径
+                for (CheckViolation violation : own) {
+                    violations.add(null == path ? violation : violation.withParent(path));
+                }
+                // 级联校验
+                if (fieldPlan.getCheck().cascade()) {
+                    collect(val, session, PathNode.property(path, feildName), childDistance, violations);
+                }
+            }
+        }
+
+        /**
+         * 属性的规则是否需要重新执行
+         */
+        private boolean isDirty(CheckPlan plan, int f, BeanState old, boolean[] changed, int dirtyDistance, boolean shared) {
+            if (changed[plan.getFieldIndex(f)]) {
+                return true;
+            }
+            int[] dependencies = plan.getLogicDependencies(f);
+            if (null == dependencies) {
+                return false;
+            }
+            CheckRule rule = plan.getCheckFields().get(f).getRule();
+            if (rule.isLogicCallsFunction()) {
+                return true;
+            }
+            if (rule.getParentReach() > 0 && (shared || rule.getParentReach() >= dirtyDistance)) {
+                return true;
+            }
+            for (int index : dependencies) {
+                // 引用了可变对象时可能引用其中的属性(例如child.name)，无法从指纹判断
+                if (changed[index] || old.isMutable(index)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 一个对象的记录
+     */
+    private static final class BeanState {
+        /** 属性值 不可变的值保存值本身，其他值保存弱引用 */
+        private final Object[] values;
+
+        /** 属性值的hashCode */
+        private final int[] hashes;
+
+        /** 每个声明了@Check的属性的校验信息 路径从当前对象开始 */
+        private final List<CheckViolation>[] violations;
+
+        /** 是否在一次校验中被多处引用 */
+        private final boolean shared;
+
+        @SuppressWarnings("unchecked")
+        BeanState(int fieldCount, int checkFieldCount, boolean shared) {
+            this.values = new Object[fieldCount];
+            this.hashes = new int[fieldCount];
+            this.violations = (List<CheckViolation>[]) new List<?>[checkFieldCount];
+            this.shared = shared;
+        }
+
+        void fingerprint(int i, Object val) {
+            // 保存弱引用 避免记录中的值引用回对象本身而无法回收
+            values[i] = isImmutable(val) ? val : new WeakReference<>(val);
+            hashes[i] = Objects.hashCode(val);
+        }
+
+        boolean isChanged(int i, Object val) {
+            Object saved = values[i];
+            if (saved instanceof WeakReference) {
+                Object ref = ((WeakReference<?>) saved).get();
+                return ref != val || hashes[i] != Objects.hashCode(val);
+            }
+            return !Objects.equals(saved, val);
+        }
+
+        /**
+         * 保存的值是否是可变对象
+         */
+        boolean isMutable(int i) {
+            return values[i] instanceof WeakReference;
+        }
+
+        private static boolean isImmutable(Object val) {
+            return null == val || val instanceof String || val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte || val instanceof Double
+                    || val instanceof Float || val instanceof BigDecimal || val instanceof BigInteger || val instanceof Boolean || val instanceof Character || val instanceof Enum;
+        }
+    }
+}
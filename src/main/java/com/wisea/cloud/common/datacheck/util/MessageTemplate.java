@@ -0,0 +1,187 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.text.Format;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * 校验消息模板
+ * <p/>
+ * 消息模板只解析一次，相同的模板共享同一个实例。<br/>
+ * 可以通过资源文件提供各语言的消息，默认消息的key为datacheck.required、datacheck.length、datacheck.liveable、datacheck.regex、datacheck.logic，<br/>
+ * 自定义消息以模板本身作为key，找不到时使用模板本身。各语言的模板也只解析一次。
+ */
+public final class MessageTemplate {
+    /** 默认资源文件 */
+    public static final String DEFAULT_BUNDLE = "datacheck-messages";
+
+    /** 默认消息与资源文件中的key */
+    private static final Map<String, String> DEFAULT_KEYS = ImmutableMap.of("{0}不能为空", "datacheck.required", "{0}{1}长度为{2}", "datacheck.length", "{0}数据无效",
+            "datacheck.liveable", "{0}格式不正确", "datacheck.regex", "{0}条件不正确", "datacheck.logic");
+
+    /** 模板缓存 */
+    private static final LoadingCache<String, MessageTemplate> CACHE = CacheBuilder.newBuilder().maximumSize(1024).build(new CacheLoader<String, MessageTemplate>() {
+        @Override
+        public MessageTemplate load(String pattern) {
+            return new MessageTemplate(pattern);
+        }
+    });
+
+    /** 资源文件 */
+    private static volatile String bundleBaseName = DEFAULT_BUNDLE;
+
+    /** 模板 */
+    private final String pattern;
+
+    /** 资源文件中的key */
+    private final String key;
+
+    /** 默认语言的格式 第一次使用时解析 */
+    private volatile Compiled compiled;
+
+    /** 各语言的格式 */
+    private final Map<Locale, Compiled> localized = new ConcurrentHashMap<>(4);
+
+    private MessageTemplate(String pattern) {
+        this.pattern = pattern;
+        this.key = null == pattern ? null : DEFAULT_KEYS.getOrDefault(pattern, pattern);
+    }
+
+    /**
+     * 取得消息模板
+     *
+     * @param pattern
+     *            MessageFormat格式的模板
+     * @return
+     */
+    public static MessageTemplate of(String pattern) {
+        if (null == pattern) {
+            // 生成消息时与MessageFormat一样抛出异常
+            return new MessageTemplate(null);
+        }
+        return CACHE.getUnchecked(pattern);
+    }
+
+    /**
+     * 设置资源文件 已经缓存的各语言格式会重新查找
+     *
+     * @param baseName
+     *            为空时使用默认资源文件
+     */
+    public static void setBundleBaseName(String baseName) {
+        bundleBaseName = ConverterUtil.isEmpty(baseName) ? DEFAULT_BUNDLE : baseName;
+    }
+
+    public static String getBundleBaseName() {
+        return bundleBaseName;
+    }
+
+    /**
+     * 使用默认语言生成消息 与MessageFormat.format(pattern, args)相同
+     *
+     * @param args
+     *            参数
+     * @return
+     */
+    public String format(Object... args) {
+        Compiled current = compiled;
+        if (null == current) {
+            current = new Compiled(new MessageFormat(pattern), null);
+            compiled = current;
+        }
+        return current.format(args);
+    }
+
+    /**
+     * 使用指定语言生成消息
+     *
+     * @param locale
+     *            语言 为空时使用默认语言
+     * @param args
+     *            参数
+     * @return
+     */
+    public String format(Locale locale, Object... args) {
+        if (null == locale) {
+            return format(args);
+        }
+        String baseName = bundleBaseName;
+        Compiled current = localized.get(locale);
+        if (null == current || !baseName.equals(current.bundle)) {
+            current = new Compiled(new MessageFormat(localizedPattern(baseName, locale), locale), baseName);
+            localized.put(locale, current);
+        }
+        return current.format(args);
+    }
+
+    /**
+     * 从资源文件中取得模板 没有时使用模板本身
+     */
+    private String localizedPattern(String baseName, Locale locale) {
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle(baseName, locale);
+            if (bundle.containsKey(key)) {
+                return bundle.getString(key);
+            }
+            if (bundle.containsKey(pattern)) {
+                return bundle.getString(pattern);
+            }
+        } catch (MissingResourceException e) {
+            // 没有资源文件
+        }
+        return pattern;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * 解析后的格式
+     */
+    private static final class Compiled {
+        private final MessageFormat format;
+
+        /** 没有{0,number}等子格式时可以多线程共用 */
+        private final boolean shared;
+
+        /** 查找时使用的资源文件 */
+        private final String bundle;
+
+        Compiled(MessageFormat format, String bundle) {
+            this.format = format;
+            this.bundle = bundle;
+            boolean noSubFormat = true;
+            for (Format sub : format.getFormats()) {
+                if (null != sub) {
+                    noSubFormat = false;
+                    break;
+                }
+            }
+            this.shared = noSubFormat;
+        }
+
+        String format(Object[] args) {
+            MessageFormat current = shared ? format : (MessageFormat) format.clone();
+            return current.format(args);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.entity.CheckViolation;
+
+/**
+ * List和Map的并行校验
+ * <p/>
+ * 元素数量达到阈值时，按下标切分成多段，由线程池和调用线程共同校验，结果按段的顺序合并，与顺序校验的结果完全一致。<br/>
+ * 调用线程自己也会领取分段，线程池繁忙或嵌套的List再次并行时不会互相等待而死锁。<br/>
+ * 阈值为0时不并行(默认)。没有设置线程池时使用专用的ForkJoinPool。
+ */
+public final class ParallelCheck {
+    /** 默认阈值 不并行 */
+    public static final int DEFAULT_THRESHOLD = 0;
+
+    /** 每个线程分到的段数 段数多于线程数时各线程的负载更均衡 */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** 并行校验的元素数量阈值 */
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    /** 最大并行度(包括调用线程) */
+    private static volatile int maxParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** 指定的线程池 */
+    private static volatile Executor executor;
+
+    /** 没有指定线程池时使用的ForkJoinPool 第一次并行时创建 */
+    private static volatile ForkJoinPool defaultPool;
+
+    private ParallelCheck() {
+    }
+
+    /**
+     * 设置并行校验的阈值
+     *
+     * @param size
+     *            元素数量达到该值时并行校验，0或负数时不并行
+     */
+    public static void setThreshold(int size) {
+        threshold = size;
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * 设置最大并行度
+     *
+     * @param parallelism
+     *            同时校验的线程数(包括调用线程)，小于等于0时使用CPU核数
+     */
+    public static synchronized void setMaxParallelism(int parallelism) {
+        int value = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (value != maxParallelism) {
+            maxParallelism = value;
+            // 专用线程池按新的并行度重新创建
+            shutdownDefaultPool();
+        }
+    }
+
+    public static int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    /**
+     * 设置线程池
+     *
+     * @param pool
+     *            为空时使用专用的ForkJoinPool
+     */
+    public static synchronized void setExecutor(Executor pool) {
+        executor = pool;
+        if (null != pool) {
+            shutdownDefaultPool();
+        }
+    }
+
+    /**
+     * 取得当前使用的线程池
+     *
+     * @return
+     */
+    public static Executor getExecutor() {
+        Executor current = executor;
+        if (null != current) {
+            return current;
+        }
+        ForkJoinPool pool = defaultPool;
+        if (null == pool) {
+            synchronized (ParallelCheck.class) {
+                pool = defaultPool;
+                if (null == pool) {
+                    pool = new ForkJoinPool(maxParallelism);
+                    defaultPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static void shutdownDefaultPool() {
+        ForkJoinPool pool = defaultPool;
+        defaultPool = null;
+        if (null != pool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 是否需要并行校验
+     *
+     * @param size
+     *            元素数量
+     * @return
+     */
+    public static boolean isParallel(int size) {
+        int limit = threshold;
+        return limit > 0 && size >= limit && size > 1 && maxParallelism > 1;
+    }
+
+    /**
+     * 校验下标为[0, size)的元素 达到阈值时并行
+     *
+     * @param size
+     *            元素数量
+     * @param task
+     *            校验一段元素的处理
+     * @param violations
+     *            校验不通过的信息 按下标顺序添加
+     */
+    static void forRange(int size, RangeTask task, List<CheckViolation> violations) {
+        if (!isParallel(size)) {
+            task.run(0, size, violations);
+            return;
+        }
+        int parallelism = Math.min(maxParallelism, size);
+        int chunks = Math.min(size, parallelism * CHUNKS_PER_THREAD);
+        ChunkRun run = new ChunkRun(size, chunks, task);
+        Executor pool = getExecutor();
+        for (int i = 1; i < parallelism; i++) {
+            try {
+                pool.execute(run);
+            } catch (RejectedExecutionException e) {
+                // 线程池不接收时由调用线程校验
+                break;
+            }
+        }
+        run.run();
+        run.await();
+        for (int c = 0; c < chunks; c++) {
+            violations.addAll(run.results[c]);
+        }
+    }
+
+    /**
+     * 校验一段元素
+     */
+    interface RangeTask {
+        /**
+         * @param from
+         *            开始下标(包括)
+         * @param to
+         *            结束下标(不包括)
+         * @param violations
+         *            校验不通过的信息
+         */
+        void run(int from, int to, List<CheckViolation> violations);
+    }
+
+    /**
+     * 一次并行校验 线程池中的线程和调用线程从同一个计数器领取分段
+     */
+    private static final class ChunkRun implements Runnable {
+        private final int size;
+        private final int chunks;
+        private final RangeTask task;
+        private final AtomicInteger next = new AtomicInteger();
+        private final CountDownLatch finished;
+        private final List<CheckViolation>[] results;
+        private final Throwable[] errors;
+
+        @SuppressWarnings("unchecked")
+        ChunkRun(int size, int chunks, RangeTask task) {
+            this.size = size;
+            this.chunks = chunks;
+            this.task = task;
+            this.finished = new CountDownLatch(chunks);
+            this.results = (List<CheckViolation>[]) new List<?>[chunks];
+            this.errors = new Throwable[chunks];
+        }
+
+        @Override
+        public void run() {
+            int c;
+            while ((c = next.getAndIncrement()) < chunks) {
+                List<CheckViolation> out = Lists.newArrayList();
+                try {
+                    task.run((int) ((long) size * c / chunks), (int) ((long) size * (c + 1) / chunks), out);
+                } catch (Throwable e) {
+                    errors[c] = e;
+                } finally {
+                    results[c] = out;
+                    finished.countDown();
+                }
+            }
+        }
+
+        /**
+         * 等待全部分段结束 已领取的分段都在运行中，不会无限等待
+         */
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            // 与顺序校验一样抛出第一个分段的异常
+            for (Throwable e : errors) {
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                if (null != e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+}
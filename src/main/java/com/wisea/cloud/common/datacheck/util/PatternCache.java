@@ -0,0 +1,91 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.util.regex.Pattern;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * 正则缓存
+ * <p/>
+ * 缓存编译后的Pattern，容量有限，超出时淘汰最近最少使用的正则，并记录命中、未命中和淘汰次数。<br/>
+ * 注解中的正则在构建校验计划时已经编译，这里主要用于Map&lt;String, DataCheck&gt;等动态传入的正则。
+ */
+public final class PatternCache {
+    /** 默认容量 */
+    public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    /** 缓存 */
+    private static volatile LoadingCache<String, Pattern> cache = build(DEFAULT_MAXIMUM_SIZE);
+
+    private PatternCache() {
+    }
+
+    private static LoadingCache<String, Pattern> build(long maximumSize) {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build(new CacheLoader<String, Pattern>() {
+            @Override
+            public Pattern load(String regex) {
+                return Pattern.compile(regex);
+            }
+        });
+    }
+
+    /**
+     * 取得编译后的正则
+     *
+     * @param regex
+     *            正则
+     * @return
+     * @throws java.util.regex.PatternSyntaxException
+     *             正则不正确时
+     */
+    public static Pattern get(String regex) {
+        try {
+            return cache.getUnchecked(regex);
+        } catch (UncheckedExecutionException e) {
+            // 与直接调用Pattern.compile抛出相同的异常
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 取得统计信息(命中、未命中、淘汰次数等)
+     *
+     * @return
+     */
+    public static CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 当前缓存的正则数量
+     *
+     * @return
+     */
+    public static long size() {
+        return cache.size();
+    }
+
+    /**
+     * 设置缓存容量 会清空当前缓存和统计信息
+     *
+     * @param maximumSize
+     *            容量 小于等于0时使用默认容量
+     */
+    public static synchronized void setMaximumSize(long maximumSize) {
+        cache = build(maximumSize > 0 ? maximumSize : DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,269 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.wisea.cloud.common.datacheck.annotation.CheckCacheable;
+import com.wisea.cloud.common.datacheck.plan.CheckPlan;
+import com.wisea.cloud.common.datacheck.plan.CheckRule;
+import com.wisea.cloud.common.datacheck.plan.FieldPlan;
+
+/**
+ * 校验结果缓存
+ * <p/>
+ * 按校验属性的值缓存checkResultMsg的结果，内容相同的对象(例如重试和广播的请求)只校验一次，默认不开启。<br/>
+ * 只缓存声明了@CheckCacheable的类，键为对象图中校验属性和逻辑表达式引用的属性的值的快照，<br/>
+ * 哈希值在创建快照时一次算出，比较时逐个比较快照中的值，哈希冲突不会返回错误的结果。<br/>
+ * 属性值只能是String、数值、Boolean、Character、枚举、Date或可以缓存的对象及其List，有其他值时不缓存。<br/>
+ * 容量有限，超出时淘汰最近最少使用的结果，并记录命中、未命中、淘汰和不能缓存的次数。
+ */
+public final class ResultCache {
+    /** 默认容量 不开启 */
+    public static final int DEFAULT_MAXIMUM_SIZE = 0;
+
+    /** 快照的最大嵌套深度 超过时不缓存 */
+    private static final int MAX_SNAPSHOT_DEPTH = 32;
+
+    /** 快照中List的标记 */
+    private static final Object LIST = new Object();
+
+    /** 缓存 不开启时为null */
+    private static volatile Cache<Snapshot, List<String>> cache;
+
+    /** 类是否可以缓存 保存在各个Class中，不会阻止类和ClassLoader被卸载，清空时替换成新的实例 */
+    private static volatile ClassCache<Boolean> cacheable = new ClassCache<>(ResultCache::resolveCacheable);
+
+    /** 不能缓存的次数 */
+    private static final AtomicLong bypassCount = new AtomicLong();
+
+    private ResultCache() {
+    }
+
+    /**
+     * 设置缓存容量 会清空当前缓存和统计信息
+     *
+     * @param maximumSize
+     *            容量 小于等于0时不开启
+     */
+    public static void setMaximumSize(long maximumSize) {
+        cache = maximumSize > 0 ? CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().<Snapshot, List<String>> build() : null;
+        bypassCount.set(0);
+    }
+
+    /**
+     * 是否开启
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return null != cache;
+    }
+
+    /**
+     * 校验并返回校验消息 可以缓存时使用缓存的结果
+     *
+     * @param data
+     *            entity
+     * @return
+     */
+    static List<String> checkResultMsg(Object data) {
+        Cache<Snapshot, List<String>> current = cache;
+        Snapshot key = null == current ? null : snapshot(data);
+        if (null == key) {
+            if (null != current) {
+                bypassCount.incrementAndGet();
+            }
+            return DataCheckUtil.toMessages(DataCheckUtil.checkViolations(data), null);
+        }
+        List<String> msgs = current.getIfPresent(key);
+        if (null == msgs) {
+            msgs = Collections.unmodifiableList(DataCheckUtil.toMessages(DataCheckUtil.checkViolations(data), null));
+            current.put(key, msgs);
+        }
+        // 调用者可能修改返回的List
+        return Lists.newArrayList(msgs);
+    }
+
+    /**
+     * 创建快照
+     *
+     * @param data
+     *            entity
+     * @return 不能缓存时返回null
+     */
+    private static Snapshot snapshot(Object data) {
+        if (null == data || !(data instanceof List) && !isCacheable(data.getClass())) {
+            return null;
+        }
+        List<Object> values = Lists.newArrayList();
+        return append(data, values, 0) ? new Snapshot(values.toArray()) : null;
+    }
+
+    /**
+     * 把值添加到快照中
+     *
+     * @return 不能缓存时返回false
+     */
+    private static boolean append(Object val, List<Object> values, int depth) {
+        if (null == val || val instanceof String || val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte || val instanceof Double
+                || val instanceof Float || val instanceof BigDecimal || val instanceof BigInteger || val instanceof Boolean || val instanceof Character || val instanceof Enum) {
+            values.add(val);
+            return true;
+        }
+        if (depth > MAX_SNAPSHOT_DEPTH) {
+            return false;
+        }
+        if (val instanceof Date) {
+            // Date是可变的 只保存时间
+            values.add(val.getClass());
+            values.add(((Date) val).getTime());
+            return true;
+        }
+        if (val instanceof List) {
+            List<?> list = (List<?>) val;
+            values.add(LIST);
+            values.add(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                if (!append(list.get(i), values, depth + 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Class<?> type = val.getClass();
+        if (!isCacheable(type)) {
+            return false;
+        }
+        values.add(type);
+        CheckPlan plan = CheckPlan.forClass(type);
+        List<FieldPlan> all = plan.getFields();
+        List<FieldPlan> fields = plan.getCheckFields();
+        for (int f = 0; f < fields.size(); f++) {
+            if (!append(fields.get(f).getValue(val), values, depth + 1)) {
+                return false;
+            }
+            int[] dependencies = plan.getLogicDependencies(f);
+            if (null != dependencies) {
+                for (int index : dependencies) {
+                    if (!append(all.get(index).getValue(val), values, depth + 1)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 类是否可以缓存 声明了@CheckCacheable，逻辑校验只调用确定性函数并且不引用parent
+     *
+     * @param type
+     *            类
+     * @return
+     */
+    private static boolean isCacheable(Class<?> type) {
+        return cacheable.get(type);
+    }
+
+    private static boolean resolveCacheable(Class<?> type) {
+        if (!type.isAnnotationPresent(CheckCacheable.class)) {
+            return false;
+        }
+        CheckFunctionRegistry functions = DataCheckUtil.getFunctionRegistry();
+        for (FieldPlan fieldPlan : CheckPlan.forClass(type).getCheckFields()) {
+            if (!fieldPlan.hasLogic()) {
+                continue;
+            }
+            CheckRule rule = fieldPlan.getRule();
+            if (rule.getParentReach() > 0) {
+                return false;
+            }
+            for (String name : rule.getLogicFunctions()) {
+                if (!functions.isDeterministic(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取得统计信息(命中、未命中、淘汰次数等)
+     *
+     * @return 不开启时为空的统计信息
+     */
+    public static CacheStats stats() {
+        Cache<Snapshot, List<String>> current = cache;
+        return null == current ? new CacheStats(0, 0, 0, 0, 0, 0) : current.stats();
+    }
+
+    /**
+     * 开启后不能缓存(类没有声明@CheckCacheable等)而直接校验的次数
+     *
+     * @return
+     */
+    public static long bypassCount() {
+        return bypassCount.get();
+    }
+
+    /**
+     * 当前缓存的结果数量
+     *
+     * @return
+     */
+    public static long size() {
+        Cache<Snapshot, List<String>> current = cache;
+        return null == current ? 0 : current.size();
+    }
+
+    /**
+     * 清空缓存 @CheckApi函数或消息资源文件变化时调用
+     */
+    public static void clear() {
+        cacheable = new ClassCache<>(ResultCache::resolveCacheable);
+        Cache<Snapshot, List<String>> current = cache;
+        if (null != current) {
+            current.invalidateAll();
+        }
+    }
+
+    /**
+     * 校验属性的值的快照
+     */
+    private static final class Snapshot {
+        private final Object[] values;
+
+        private final int hash;
+
+        Snapshot(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Snapshot)) {
+                return false;
+            }
+            Snapshot other = (Snapshot) obj;
+            return hash == other.hash && Arrays.equals(values, other.values);
+        }
+    }
+}
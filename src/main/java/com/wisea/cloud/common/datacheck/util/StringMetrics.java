@@ -0,0 +1,262 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字符串长度计算
+ * <p/>
+ * of(str)逐个字符遍历一次字符串，同时计算字符数、码点数、中英文长度以及UTF-8和GBK编码后的字节数，<br/>
+ * 一个值有多种长度校验时只遍历一次。只需要一种长度时可以使用不创建对象的静态方法mixLength、byteLength等。<br/>
+ * 中英文长度与原来的ConverterUtil.getMixLength一致:\u0391到\uFFE5之间的字符(包括代理字符)计为2，其他字符计为1。<br/>
+ * 字节数与String.getBytes的结果一致，不能编码的字符按替换字符计算。GBK每个字符的字节数在第一次使用时一次性算出并保存在查找表中。
+ */
+public final class StringMetrics {
+    /** 中英文长度计为2的第一个字符 */
+    private static final char MIX_FIRST = '\u0391';
+
+    /** 中英文长度计为2的最后一个字符 */
+    private static final char MIX_LAST = '\uFFE5';
+
+    /** GBK字符集名 */
+    private static final String GBK = "GBK";
+
+    /** 字符串 其他字符集计算字节数时使用 */
+    private final CharSequence str;
+
+    /** 字符数 */
+    private final int length;
+
+    /** 码点数 */
+    private final int codePointCount;
+
+    /** 中英文长度 */
+    private final int mixLength;
+
+    /** UTF-8字节数 */
+    private final int utf8Length;
+
+    /** GBK字节数 */
+    private final int gbkLength;
+
+    private StringMetrics(CharSequence str, int length, int codePointCount, int mixLength, int utf8Length, int gbkLength) {
+        this.str = str;
+        this.length = length;
+        this.codePointCount = codePointCount;
+        this.mixLength = mixLength;
+        this.utf8Length = utf8Length;
+        this.gbkLength = gbkLength;
+    }
+
+    /**
+     * 遍历一次字符串计算全部长度
+     *
+     * @param str
+     *            字符串
+     * @return
+     */
+    public static StringMetrics of(CharSequence str) {
+        byte[] gbk = GbkTable.BYTES;
+        int len = str.length();
+        int codePoints = 0;
+        int mix = 0;
+        int utf8 = 0;
+        int gbkBytes = 0;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            mix += c >= MIX_FIRST && c <= MIX_LAST ? 2 : 1;
+            codePoints++;
+            if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                // 低位代理字符也计入中英文长度
+                mix += 2;
+                utf8 += 4;
+                gbkBytes += GbkTable.REPLACEMENT;
+                i++;
+            } else {
+                utf8 += utf8Bytes(c);
+                gbkBytes += gbk[c];
+            }
+        }
+        return new StringMetrics(str, len, codePoints, mix, utf8, gbkBytes);
+    }
+
+    /**
+     * 中英文长度 \u0391到\uFFE5之间的字符计为2，其他字符计为1
+     *
+     * @param str
+     *            字符串
+     * @return
+     */
+    public static int mixLength(CharSequence str) {
+        int len = str.length();
+        int mix = len;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (c >= MIX_FIRST && c <= MIX_LAST) {
+                mix++;
+            }
+        }
+        return mix;
+    }
+
+    /**
+     * 码点数 代理对计为1
+     *
+     * @param str
+     *            字符串
+     * @return
+     */
+    public static int codePointCount(CharSequence str) {
+        return Character.codePointCount(str, 0, str.length());
+    }
+
+    /**
+     * UTF-8编码后的字节数
+     *
+     * @param str
+     *            字符串
+     * @return 与str.toString().getBytes(StandardCharsets.UTF_8).length一致
+     */
+    public static int utf8Length(CharSequence str) {
+        int len = str.length();
+        int bytes = 0;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += utf8Bytes(c);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * GBK编码后的字节数
+     *
+     * @param str
+     *            字符串
+     * @return 与str.toString().getBytes("GBK").length一致
+     */
+    public static int gbkLength(CharSequence str) {
+        byte[] gbk = GbkTable.BYTES;
+        int len = str.length();
+        int bytes = 0;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                // GBK不能编码BMP以外的字符 代理对整体替换一次
+                bytes += GbkTable.REPLACEMENT;
+                i++;
+            } else {
+                bytes += gbk[c];
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 按字符集编码后的字节数 UTF-8和GBK不创建对象，其他字符集实际编码一次
+     *
+     * @param str
+     *            字符串
+     * @param charset
+     *            字符集
+     * @return 与str.toString().getBytes(charset).length一致
+     */
+    public static int byteLength(CharSequence str, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return utf8Length(str);
+        }
+        if (GBK.equals(charset.name())) {
+            return gbkLength(str);
+        }
+        return str.toString().getBytes(charset).length;
+    }
+
+    /**
+     * 一个BMP字符(不是代理对)的UTF-8字节数 单独的代理字符编码为替换字符'?'
+     */
+    private static int utf8Bytes(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800) {
+            return 2;
+        }
+        return Character.isSurrogate(c) ? 1 : 3;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getCodePointCount() {
+        return codePointCount;
+    }
+
+    public int getMixLength() {
+        return mixLength;
+    }
+
+    public int getUtf8Length() {
+        return utf8Length;
+    }
+
+    public int getGbkLength() {
+        return gbkLength;
+    }
+
+    /**
+     * 按字符集编码后的字节数 UTF-8和GBK使用已经计算的结果，其他字符集实际编码一次
+     *
+     * @param charset
+     *            字符集
+     * @return 与byteLength(str, charset)一致
+     */
+    public int getByteLength(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return utf8Length;
+        }
+        if (GBK.equals(charset.name())) {
+            return gbkLength;
+        }
+        return str.toString().getBytes(charset).length;
+    }
+
+    /**
+     * GBK查找表 第一次使用时创建
+     */
+    private static final class GbkTable {
+        /** 替换字符的字节数 */
+        static final int REPLACEMENT;
+
+        /** 每个字符编码后的字节数 */
+        static final byte[] BYTES = new byte[Character.MAX_VALUE + 1];
+
+        static {
+            CharsetEncoder encoder = Charset.forName(GBK).newEncoder();
+            REPLACEMENT = encoder.replacement().length;
+            char[] chars = new char[1];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (Character.isSurrogate((char) c)) {
+                    // 单独的代理字符不能编码
+                    BYTES[c] = (byte) REPLACEMENT;
+                    continue;
+                }
+                chars[0] = (char) c;
+                try {
+                    BYTES[c] = (byte) encoder.encode(CharBuffer.wrap(chars)).remaining();
+                } catch (CharacterCodingException e) {
+                    BYTES[c] = (byte) REPLACEMENT;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.wisea.cloud.common.datacheck.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.wisea.cloud.common.datacheck.annotation.Check;
+
+/**
+ * DataCheckUtil.check的内存分配
+ * <p/>
+ * 没有正则校验、逻辑校验和嵌套对象的实体，预热后校验通过时不创建任何对象。<br/>
+ * 快速校验本身不创建对象，不依赖JIT的逃逸分析，关闭逃逸分析(-XX:-DoEscapeAnalysis)时也应该通过。
+ */
+public class DataCheckAllocationTest {
+    /** 预热次数 JIT编译完成并执行过编译后的代码(编译后第一次执行时的类加载等一次性处理)之后才测量 */
+    private static final int WARMUP = 200000;
+
+    /** 测量的校验次数 */
+    private static final int CALLS = 10000;
+
+    /**
+     * 只有非空、长度和有效值校验的实体
+     */
+    static class FlatBean {
+        @Check(test = { "required", "maxLength" }, length = 10)
+        String name = "abc";
+
+        @Check(test = "required")
+        Integer age = 18;
+
+        @Check(test = "liveable", liveable = { "0", "1" })
+        String status = "1";
+
+        @Check(test = { "minLength", "maxLength" }, lengthRange = { 1, 5 })
+        String code = "abc";
+
+        String remarks = "not checked";
+    }
+
+    @Test
+    public void checkFlatBeanWithoutAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mxBean.isThreadAllocatedMemorySupported());
+        mxBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        FlatBean bean = new FlatBean();
+        // 预热和测量调用同一个方法 测量时不会再触发新的编译
+        assertTrue(checkRepeatedly(bean, WARMUP));
+        // 第一次调用getThreadAllocatedBytes时可能初始化
+        mxBean.getThreadAllocatedBytes(threadId);
+
+        long before = mxBean.getThreadAllocatedBytes(threadId);
+        boolean valid = checkRepeatedly(bean, CALLS);
+        long after = mxBean.getThreadAllocatedBytes(threadId);
+        assertTrue(valid);
+        assertEquals(0L, after - before);
+    }
+
+    private static boolean checkRepeatedly(Object bean, int times) {
+        boolean valid = true;
+        for (int i = 0; i < times; i++) {
+            valid &= DataCheckUtil.check(bean);
+        }
+        return valid;
+    }
+}